@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.powsybl.contingency.Contingency;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+import static org.gridsuite.study.server.StudyConstants.ACTIONS_API_VERSION;
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+
+/**
+ * Client of the actions server, exporting the contingency lists on the networks.
+ * <p>
+ * The identical reads in flight are coalesced, and the requests are measured by template under the
+ * http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class ActionsClient {
+
+    private static final String SERVICE = "actions";
+
+    private static final CompiledUriTemplate EXPORT = new CompiledUriTemplate(DELIMITER + ACTIONS_API_VERSION
+            + "/contingency-lists/{contingencyListName}/export?networkUuid={networkUuid}");
+
+    private final WebClient webClient;
+
+    private final SingleFlight singleFlight;
+
+    private volatile String baseUri;
+
+    public ActionsClient(@Value("${backing-services.actions-server.base-uri:http://actions-server/}") String baseUri,
+                         BackingServiceClients backingServiceClients,
+                         SingleFlight singleFlight) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+        this.singleFlight = singleFlight;
+    }
+
+    public Mono<List<Contingency>> getContingencies(String contingencyListName, UUID networkUuid) {
+        String uri = EXPORT.expand(baseUri, contingencyListName, networkUuid);
+        return singleFlight.get(SERVICE, uri, () -> webClient.get()
+                .uri(URI.create(uri))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, EXPORT.getTemplate())
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<Contingency>>() { }));
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
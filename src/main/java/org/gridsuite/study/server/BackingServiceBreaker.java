@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.gridsuite.study.server.StudyException.Type.BACKING_SERVICE_UNAVAILABLE;
+
+/**
+ * Circuit breaker and bulkhead of the requests to a backing service, failing fast while the service is unavailable
+ * instead of piling up the requests on the study server.
+ * <p>
+ * The circuit opens after a number of consecutive failures, a server error or no response at all, then lets a single
+ * trial request through once it has been open for a while: the circuit closes again if the trial succeeds. The
+ * bulkhead bounds the number of requests in flight to the service. The rejected requests fail with
+ * {@link StudyException.Type#BACKING_SERVICE_UNAVAILABLE}.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+class BackingServiceBreaker implements ExchangeFilterFunction {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackingServiceBreaker.class);
+
+    static final String CIRCUIT_STATE_METER = "study.backend.circuit.state";
+
+    enum State {
+        // the ordinal is the value of the state gauge
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final String service;
+
+    private final int failureThreshold;
+
+    private final long openDurationNanos;
+
+    private final Semaphore bulkhead;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile long openedAt;
+
+    private final Counter circuitOpenRejections;
+
+    private final Counter bulkheadFullRejections;
+
+    BackingServiceBreaker(String service, int failureThreshold, Duration openDuration, int maxConcurrentRequests, MeterRegistry meterRegistry) {
+        this.service = service;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.bulkhead = new Semaphore(maxConcurrentRequests);
+        Gauge.builder(CIRCUIT_STATE_METER, state, s -> s.get().ordinal())
+                .description("State of the circuit breaker of a backing service: 0 closed, 1 half-open, 2 open")
+                .tag("service", service)
+                .register(meterRegistry);
+        Gauge.builder("study.backend.requests.active", bulkhead, b -> maxConcurrentRequests - b.availablePermits())
+                .description("Requests in flight to a backing service")
+                .tag("service", service)
+                .register(meterRegistry);
+        circuitOpenRejections = rejections(meterRegistry, service, "circuit-open");
+        bulkheadFullRejections = rejections(meterRegistry, service, "bulkhead-full");
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            if (!bulkhead.tryAcquire()) {
+                bulkheadFullRejections.increment();
+                return Mono.error(new StudyException(BACKING_SERVICE_UNAVAILABLE));
+            }
+            if (!tryPass()) {
+                bulkhead.release();
+                circuitOpenRejections.increment();
+                return Mono.error(new StudyException(BACKING_SERVICE_UNAVAILABLE));
+            }
+            // the permit is held until the response headers are received, when the service has done most of its work
+            return next.exchange(request)
+                    .doOnSuccess(response -> {
+                        if (response != null && response.statusCode().is5xxServerError()) {
+                            onFailure();
+                        } else {
+                            onSuccess();
+                        }
+                    })
+                    .doOnError(e -> onFailure())
+                    // a cancelled trial says nothing of the service, the next request is the trial
+                    .doOnCancel(() -> state.compareAndSet(State.HALF_OPEN, State.OPEN))
+                    .doFinally(s -> bulkhead.release());
+        });
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    private boolean tryPass() {
+        switch (state.get()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return System.nanoTime() - openedAt >= openDurationNanos && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+            default:
+                // the trial request is in flight
+                return false;
+        }
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            LOGGER.info("Circuit of the backing service '{}' closed", service);
+        }
+    }
+
+    private void onFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.nanoTime();
+            consecutiveFailures.set(0);
+            if (state.getAndSet(State.OPEN) != State.OPEN) {
+                LOGGER.warn("Circuit of the backing service '{}' opened", service);
+            }
+        }
+    }
+
+    /**
+     * @return true if the error means the service is unavailable: a request failed fast, a connection refused, a
+     * request timed out or a server error. The other errors, an answer of the service to the request or a bug of the
+     * study server, are not hidden behind a stale response.
+     */
+    static boolean isUnavailability(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            return ((WebClientResponseException) error).getStatusCode().is5xxServerError();
+        }
+        if (error instanceof StudyException) {
+            return ((StudyException) error).getType() == BACKING_SERVICE_UNAVAILABLE;
+        }
+        // the connection errors may be wrapped by the client
+        for (Throwable cause = error; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+            if (cause instanceof ConnectException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof TimeoutException
+                    || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Counter staleResponses(MeterRegistry meterRegistry, String service) {
+        return Counter.builder("study.backend.responses.stale")
+                .description("Cached responses served while a backing service is unavailable")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String service, String reason) {
+        return Counter.builder("study.backend.requests.rejected")
+                .description("Requests to a backing service failed fast by its circuit breaker or its bulkhead")
+                .tags("service", service, "reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP clients of the backing services, each with its own connection pool, so that the slow requests to a
+ * service, like a load flow run or a network export, can't take the connections of the interactive requests to the
+ * other services.
+ * <p>
+ * The clients are configured by the study.backing-service-clients.default properties, overridden for a service by
+ * the study.backing-service-clients.&lt;service&gt; ones. The pools are measured under the
+ * reactor.netty.connection.provider meters, tagged with the name of their service.
+ * <p>
+ * The requests to each service go through its own circuit breaker and bulkhead, whose state is measured by the
+ * study.backend.circuit.state and study.backend.requests.active meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class BackingServiceClients {
+
+    private static final String PROPERTIES_PREFIX = "study.backing-service-clients.";
+
+    private static final String DEFAULT_SETTINGS = "default";
+
+    private final WebClient.Builder webClientBuilder;
+
+    private final Binder binder;
+
+    private final MeterRegistry meterRegistry;
+
+    private final List<ConnectionProvider> connectionProviders = new CopyOnWriteArrayList<>();
+
+    public BackingServiceClients(WebClient.Builder webClientBuilder, Environment environment, MeterRegistry meterRegistry) {
+        this.webClientBuilder = webClientBuilder;
+        this.binder = Binder.get(environment);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public WebClient create(String service) {
+        ClientSettings settings = getSettings(service);
+
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(service)
+                .maxConnections(settings.getMaxConnections())
+                .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(settings.getPendingAcquireTimeout())
+                .metrics(true)
+                .build();
+        connectionProviders.add(connectionProvider);
+
+        Duration readTimeout = settings.getReadTimeout();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .tcpConfiguration(tcpClient -> tcpClient
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) settings.getConnectTimeout().toMillis())
+                        .doOnConnected(connection -> {
+                            // no timeout by default, the computations of some services take as long as the network is large
+                            if (!readTimeout.isZero()) {
+                                connection.addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS));
+                            }
+                        }));
+        if (settings.isHttp2()) {
+            // the backing services are reached in clear text, the connections are upgraded if the service supports it
+            httpClient = httpClient.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+        }
+
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(new BackingServiceBreaker(service, settings.getFailureThreshold(), settings.getOpenDuration(),
+                                                  settings.getMaxConcurrentRequests(), meterRegistry))
+                .build();
+    }
+
+    /**
+     * @return the default settings, overridden by the settings of the service
+     */
+    ClientSettings getSettings(String service) {
+        ClientSettings settings = binder.bind(PROPERTIES_PREFIX + DEFAULT_SETTINGS, ClientSettings.class).orElseGet(ClientSettings::new);
+        binder.bind(PROPERTIES_PREFIX + service, Bindable.ofInstance(settings));
+        return settings;
+    }
+
+    /**
+     * Streams the response of a backing service: the bytes are passed through as they are received, still encoded
+     * if the client accepts the encoding, so that the memory used does not depend on the size of the response.
+     */
+    static Mono<ResponseEntity<Flux<DataBuffer>>> streamResponse(WebClient.RequestHeadersSpec<?> request, String acceptEncoding) {
+        return request
+                .headers(headers -> {
+                    if (acceptEncoding != null) {
+                        headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+                    }
+                })
+                .exchange()
+                .flatMap(response -> {
+                    if (response.statusCode().isError()) {
+                        return response.createException().flatMap(Mono::error);
+                    }
+                    ClientResponse.Headers responseHeaders = response.headers();
+                    HttpHeaders headers = new HttpHeaders();
+                    // the charset parameter is left out, it has no meaning for JSON
+                    responseHeaders.contentType().ifPresent(type -> headers.setContentType(new MediaType(type.getType(), type.getSubtype())));
+                    responseHeaders.contentLength().ifPresent(headers::setContentLength);
+                    headers.addAll(HttpHeaders.CONTENT_ENCODING, responseHeaders.header(HttpHeaders.CONTENT_ENCODING));
+                    headers.addAll(HttpHeaders.CONTENT_DISPOSITION, responseHeaders.header(HttpHeaders.CONTENT_DISPOSITION));
+                    return Mono.just(ResponseEntity.status(response.statusCode()).headers(headers).body(response.bodyToFlux(DataBuffer.class)));
+                });
+    }
+
+    /**
+     * Releases the connection of a streamed response whose body is not read: the body is subscribed and cancelled at
+     * once, which closes the connection rather than reading the rest of the body.
+     */
+    static void releaseBody(ResponseEntity<Flux<DataBuffer>> response) {
+        Flux<DataBuffer> body = response.getBody();
+        if (body != null) {
+            body.take(0).subscribe();
+        }
+    }
+
+    /**
+     * @return true for the responses which must not be kept by the clients, like the stale responses served while a
+     * backing service is unavailable: they may not match the version of the study
+     */
+    static boolean isNoStore(ResponseEntity<?> response) {
+        String cacheControl = response.getHeaders().getCacheControl();
+        return cacheControl != null && cacheControl.contains("no-store");
+    }
+
+    @PreDestroy
+    public void dispose() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
+    }
+
+    @Getter
+    @Setter
+    public static class ClientSettings {
+
+        private int maxConnections = 50;
+
+        // the requests waiting for a connection, the others fail at once
+        private int pendingAcquireMaxCount = 500;
+
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        private Duration readTimeout = Duration.ZERO;
+
+        private boolean http2;
+
+        // the consecutive failures opening the circuit
+        private int failureThreshold = 5;
+
+        // the time the circuit stays open before a trial request is let through
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        private int maxConcurrentRequests = 200;
+    }
+}
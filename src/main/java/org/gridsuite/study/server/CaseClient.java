@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.gridsuite.study.server.StudyConstants.CASE_API_VERSION;
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+
+/**
+ * Client of the case server, checking and importing the cases of the studies.
+ * <p>
+ * The identical reads in flight are coalesced, and the requests are measured by template under the
+ * http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class CaseClient {
+
+    private static final String SERVICE = "case";
+
+    private static final CompiledUriTemplate CASE_FORMAT = new CompiledUriTemplate(DELIMITER + CASE_API_VERSION + "/cases/{caseUuid}/format");
+
+    private static final CompiledUriTemplate CASE_EXISTS = new CompiledUriTemplate(DELIMITER + CASE_API_VERSION + "/cases/{caseUuid}/exists");
+
+    private static final CompiledUriTemplate PRIVATE_CASES = new CompiledUriTemplate(DELIMITER + CASE_API_VERSION + "/cases/private");
+
+    private final WebClient webClient;
+
+    private final SingleFlight singleFlight;
+
+    private volatile String baseUri;
+
+    public CaseClient(@Value("${backing-services.case.base-uri:http://case-server/}") String baseUri,
+                      BackingServiceClients backingServiceClients,
+                      SingleFlight singleFlight) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+        this.singleFlight = singleFlight;
+    }
+
+    public Mono<String> getFormat(UUID caseUuid) {
+        String uri = CASE_FORMAT.expand(baseUri, caseUuid);
+        return singleFlight.get(SERVICE, uri, () -> webClient.get()
+                .uri(URI.create(uri))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, CASE_FORMAT.getTemplate())
+                .retrieve()
+                .bodyToMono(String.class));
+    }
+
+    public Mono<Boolean> exists(UUID caseUuid) {
+        String uri = CASE_EXISTS.expand(baseUri, caseUuid);
+        return singleFlight.get(SERVICE, uri, () -> webClient.get()
+                .uri(URI.create(uri))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, CASE_EXISTS.getTemplate())
+                .retrieve()
+                .bodyToMono(Boolean.class));
+    }
+
+    /**
+     * @param multipartData the case file, streamed to the case server
+     * @param errorHandler the error of a failed import
+     */
+    public Mono<UUID> importPrivateCase(MultiValueMap<String, HttpEntity<?>> multipartData,
+                                        Function<ClientResponse, Mono<? extends Throwable>> errorHandler) {
+        return webClient.post()
+                .uri(URI.create(PRIVATE_CASES.expand(baseUri)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, PRIVATE_CASES.getTemplate())
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(multipartData))
+                .retrieve()
+                .onStatus(httpStatus -> httpStatus != HttpStatus.OK, errorHandler)
+                .bodyToMono(UUID.class);
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.gridsuite.study.server.dto.CaseUploadInfos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.gridsuite.study.server.StudyException.Type.*;
+
+/**
+ * Resumable uploads of case files: the chunks are spooled to the local disk until the upload is finalized,
+ * then read back in order and streamed to the case server.
+ * <p>
+ * The size of the chunks, their number and the disk space used by the uploads of a user are bounded: the chunks
+ * exceeding them are rejected with {@link StudyException.Type#UPLOAD_TOO_LARGE}. The space used by each user is
+ * counted in memory, from a scan of the uploads of the user the first time it is needed: a chunk reserves its space as
+ * it is received, before writing it, and releases it if it fails, and the chunks replaced and the uploads deleted
+ * release theirs. A chunk sent again is counted twice until it replaces the previous one.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Service
+public class CaseUploadService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaseUploadService.class);
+
+    private static final String INFOS_FILE = "upload.properties";
+    // the infos file is renamed when the upload is finalized, so that it can't be finalized twice
+    private static final String FINALIZED_INFOS_FILE = "upload.finalized";
+    private static final String CHUNK_PREFIX = "chunk-";
+    private static final String PARTIAL_CHUNK_SUFFIX = ".part";
+
+    private static final String USER_ID_PROPERTY = "userId";
+    private static final String FILE_NAME_PROPERTY = "fileName";
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private final Path directory;
+
+    private final Duration expiration;
+
+    private final long maximumChunkSizeBytes;
+
+    private final int maximumChunks;
+
+    private final long maximumUserSizeBytes;
+
+    // the space used by the uploads of each user, also locked to commit or delete the chunks of the user
+    private final ConcurrentMap<String, AtomicLong> userSizes = new ConcurrentHashMap<>();
+
+    public CaseUploadService(@Value("${study.case-upload.directory:${java.io.tmpdir}/study-case-uploads}") String directory,
+                             @Value("${study.case-upload.expire-after-hours:24}") long expireAfterHours,
+                             @Value("${study.case-upload.maximum-chunk-size-bytes:67108864}") long maximumChunkSizeBytes,
+                             @Value("${study.case-upload.maximum-chunks:10000}") int maximumChunks,
+                             @Value("${study.case-upload.maximum-user-size-bytes:4294967296}") long maximumUserSizeBytes) {
+        this.directory = Paths.get(directory);
+        this.expiration = Duration.ofHours(expireAfterHours);
+        this.maximumChunkSizeBytes = maximumChunkSizeBytes;
+        this.maximumChunks = maximumChunks;
+        this.maximumUserSizeBytes = maximumUserSizeBytes;
+    }
+
+    Mono<CaseUploadInfos> startUpload(String userId, String fileName) {
+        return Mono.fromCallable(() -> {
+            deleteExpiredUploads();
+            UUID uploadId = UUID.randomUUID();
+            Path uploadDirectory = Files.createDirectories(directory.resolve(uploadId.toString()));
+            Properties infos = new Properties();
+            infos.setProperty(USER_ID_PROPERTY, userId);
+            infos.setProperty(FILE_NAME_PROPERTY, fileName);
+            try (Writer writer = Files.newBufferedWriter(uploadDirectory.resolve(INFOS_FILE), StandardCharsets.UTF_8)) {
+                infos.store(writer, null);
+            }
+            return new CaseUploadInfos(uploadId, fileName, Collections.emptyList());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    Mono<CaseUploadInfos> getUpload(UUID uploadId, String userId) {
+        return Mono.fromCallable(() -> readUpload(uploadId, userId)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Writes a chunk of the upload, replacing the chunk with the same number if it has already been received.
+     * The chunk is only visible once it has been completely written, so an interrupted transfer just has to be resent.
+     * Each transfer writes to its own partial file, so that the transfers of the same chunk sent at the same time
+     * don't mix their content: the last one completed replaces the others.
+     */
+    Mono<Void> writeChunk(UUID uploadId, String userId, int chunkNumber, Flux<DataBuffer> content) {
+        if (chunkNumber < 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk number must be positive"));
+        }
+        if (chunkNumber >= maximumChunks) {
+            return Mono.error(new StudyException(UPLOAD_TOO_LARGE));
+        }
+        Path chunk = directory.resolve(uploadId.toString()).resolve(CHUNK_PREFIX + chunkNumber);
+        Path partialChunk = chunk.resolveSibling(chunk.getFileName() + "." + UUID.randomUUID() + PARTIAL_CHUNK_SUFFIX);
+        return getUpload(uploadId, userId)
+                .then(Mono.fromCallable(() -> getUserSize(userId)).subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(userSize -> {
+                    AtomicLong reservedSize = new AtomicLong();
+                    // set once the reserved space is either committed or released
+                    AtomicBoolean settled = new AtomicBoolean();
+                    return DataBufferUtils.write(reserveSize(content, userSize, reservedSize), partialChunk,
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+                            .then(Mono.fromCallable(() -> commitChunk(userSize, reservedSize, settled, partialChunk, chunk))
+                                    .subscribeOn(Schedulers.boundedElastic()))
+                            // failed or cancelled
+                            .doFinally(s -> {
+                                if (settled.compareAndSet(false, true)) {
+                                    userSize.addAndGet(-reservedSize.get());
+                                }
+                            });
+                })
+                .onErrorResume(e -> Mono.fromCallable(() -> Files.deleteIfExists(partialChunk))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.error(e)))
+                .then();
+    }
+
+    /**
+     * Checks that every chunk up to the last one has been received, and marks the upload as finalized.
+     */
+    Mono<CaseUploadInfos> finalizeUpload(UUID uploadId, String userId) {
+        return getUpload(uploadId, userId)
+                .flatMap(upload -> {
+                    List<Integer> chunks = upload.getReceivedChunks();
+                    if (chunks.isEmpty() || chunks.get(chunks.size() - 1) != chunks.size() - 1) {
+                        return Mono.error(new StudyException(UPLOAD_INCOMPLETE));
+                    }
+                    Path uploadDirectory = directory.resolve(uploadId.toString());
+                    return Mono.fromCallable(() -> {
+                        try {
+                            Files.move(uploadDirectory.resolve(INFOS_FILE), uploadDirectory.resolve(FINALIZED_INFOS_FILE), StandardCopyOption.ATOMIC_MOVE);
+                        } catch (NoSuchFileException e) {
+                            throw new StudyException(UPLOAD_NOT_FOUND);
+                        }
+                        return upload;
+                    }).subscribeOn(Schedulers.boundedElastic());
+                });
+    }
+
+    /**
+     * Reopens a finalized upload whose case could not be imported, for the import to be retried without sending the
+     * chunks again.
+     */
+    Mono<Void> reopenUpload(UUID uploadId) {
+        Path uploadDirectory = directory.resolve(uploadId.toString());
+        return Mono.<Void>fromCallable(() -> {
+            try {
+                Files.move(uploadDirectory.resolve(FINALIZED_INFOS_FILE), uploadDirectory.resolve(INFOS_FILE), StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                // already deleted
+            }
+            return null;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Reads back the content of a finalized upload, chunk after chunk.
+     */
+    Flux<DataBuffer> readCase(CaseUploadInfos upload) {
+        Path uploadDirectory = directory.resolve(upload.getUploadId().toString());
+        return Flux.fromIterable(upload.getReceivedChunks())
+                .concatMap(chunkNumber -> DataBufferUtils.read(uploadDirectory.resolve(CHUNK_PREFIX + chunkNumber), bufferFactory, READ_BUFFER_SIZE));
+    }
+
+    Mono<Void> deleteUpload(UUID uploadId, String userId) {
+        return getUpload(uploadId, userId).then(deleteUpload(uploadId));
+    }
+
+    Mono<Void> deleteUpload(UUID uploadId) {
+        return Mono.<Void>fromRunnable(() -> deleteUploadDirectory(directory.resolve(uploadId.toString())))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private CaseUploadInfos readUpload(UUID uploadId, String userId) throws IOException {
+        Path uploadDirectory = directory.resolve(uploadId.toString());
+        Properties infos = new Properties();
+        try (Reader reader = Files.newBufferedReader(uploadDirectory.resolve(INFOS_FILE), StandardCharsets.UTF_8)) {
+            infos.load(reader);
+        } catch (NoSuchFileException e) {
+            throw new StudyException(UPLOAD_NOT_FOUND);
+        }
+        if (!userId.equals(infos.getProperty(USER_ID_PROPERTY))) {
+            throw new StudyException(NOT_ALLOWED);
+        }
+        List<Integer> receivedChunks;
+        try (Stream<Path> files = Files.list(uploadDirectory)) {
+            receivedChunks = files.map(file -> file.getFileName().toString())
+                    .filter(CaseUploadService::isChunk)
+                    .map(name -> Integer.valueOf(name.substring(CHUNK_PREFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        return new CaseUploadInfos(uploadId, infos.getProperty(FILE_NAME_PROPERTY), receivedChunks);
+    }
+
+    /**
+     * Reserves the space of each buffer of a chunk on the space of the user, before it is written.
+     *
+     * @param reservedSize the space reserved by the chunk, to release it if the chunk is not committed
+     */
+    private Flux<DataBuffer> reserveSize(Flux<DataBuffer> content, AtomicLong userSize, AtomicLong reservedSize) {
+        return content.handle((buffer, sink) -> {
+            int size = buffer.readableByteCount();
+            if (reservedSize.get() + size > maximumChunkSizeBytes) {
+                DataBufferUtils.release(buffer);
+                sink.error(new StudyException(UPLOAD_TOO_LARGE));
+            } else if (userSize.addAndGet(size) > maximumUserSizeBytes) {
+                userSize.addAndGet(-size);
+                DataBufferUtils.release(buffer);
+                sink.error(new StudyException(UPLOAD_TOO_LARGE));
+            } else {
+                reservedSize.addAndGet(size);
+                sink.next(buffer);
+            }
+        });
+    }
+
+    /**
+     * Makes a written chunk visible, releasing the space of the chunk it replaces.
+     */
+    private static Path commitChunk(AtomicLong userSize, AtomicLong reservedSize, AtomicBoolean settled, Path partialChunk, Path chunk) throws IOException {
+        synchronized (userSize) {
+            long replacedSize = Files.exists(chunk) ? Files.size(chunk) : 0;
+            Files.move(partialChunk, chunk, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (!settled.compareAndSet(false, true)) {
+                // the transfer has been cancelled while its chunk was committed, which released its space
+                userSize.addAndGet(reservedSize.get());
+            }
+            userSize.addAndGet(-replacedSize);
+            return chunk;
+        }
+    }
+
+    /**
+     * Deletes an upload, releasing the space of its chunks.
+     */
+    private void deleteUploadDirectory(Path upload) {
+        String userId = getUploadUserId(upload);
+        if (userId == null) {
+            deleteDirectory(upload);
+            return;
+        }
+        AtomicLong userSize;
+        try {
+            userSize = getUserSize(userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (userSize) {
+            long size = getSize(upload);
+            deleteDirectory(upload);
+            userSize.addAndGet(-size);
+        }
+    }
+
+    /**
+     * @return the space used by the uploads of the user, scanned the first time
+     */
+    private AtomicLong getUserSize(String userId) throws IOException {
+        AtomicLong userSize = userSizes.get(userId);
+        if (userSize != null) {
+            return userSize;
+        }
+        try {
+            return userSizes.computeIfAbsent(userId, u -> {
+                try {
+                    return new AtomicLong(scanUserSize(u));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return the disk space used by the chunks of the uploads of the user, finalized or not
+     */
+    private long scanUserSize(String userId) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<Path> uploads;
+        try (Stream<Path> files = Files.list(directory)) {
+            uploads = files.collect(Collectors.toList());
+        }
+        long size = 0;
+        for (Path upload : uploads) {
+            if (userId.equals(getUploadUserId(upload))) {
+                size += getSize(upload);
+            }
+        }
+        return size;
+    }
+
+    private static String getUploadUserId(Path upload) {
+        for (String infosFile : List.of(INFOS_FILE, FINALIZED_INFOS_FILE)) {
+            Properties infos = new Properties();
+            try (Reader reader = Files.newBufferedReader(upload.resolve(infosFile), StandardCharsets.UTF_8)) {
+                infos.load(reader);
+                return infos.getProperty(USER_ID_PROPERTY);
+            } catch (IOException e) {
+                // not this infos file, or the upload has just been deleted
+            }
+        }
+        return null;
+    }
+
+    private static long getSize(Path upload) {
+        try (Stream<Path> files = Files.list(upload)) {
+            // the partial chunks are counted by their transfer
+            return files.filter(file -> isChunk(file.getFileName().toString())).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    // a chunk just deleted
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isChunk(String fileName) {
+        return fileName.startsWith(CHUNK_PREFIX) && !fileName.endsWith(PARTIAL_CHUNK_SUFFIX);
+    }
+
+    private void deleteExpiredUploads() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Instant expirationDate = Instant.now().minus(expiration);
+        List<Path> expiredUploads;
+        try (Stream<Path> uploads = Files.list(directory)) {
+            expiredUploads = uploads.filter(upload -> isUntouchedSince(upload, expirationDate)).collect(Collectors.toList());
+        }
+        expiredUploads.forEach(upload -> {
+            LOGGER.info("Deleting expired case upload {}", upload.getFileName());
+            deleteUploadDirectory(upload);
+        });
+    }
+
+    private static boolean isUntouchedSince(Path upload, Instant date) {
+        try {
+            return Files.getLastModifiedTime(upload).toInstant().isBefore(date);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteDirectory(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            // children before their parent
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (NoSuchFileException e) {
+            // already deleted
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -6,6 +6,17 @@
  */
 package org.gridsuite.study.server;
 
+import com.codahale.metrics.Counter;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Metrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
@@ -15,6 +26,11 @@ import org.springframework.data.cassandra.config.CassandraClusterFactoryBean;
 import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
 import org.springframework.data.cassandra.core.mapping.SimpleUserTypeResolver;
 import org.springframework.data.cassandra.repository.config.EnableReactiveCassandraRepositories;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * @author Abdelsalem HEDHILI <abdelsalem.hedhili at rte-france.com>
@@ -33,7 +49,7 @@ public class CassandraConfig extends AbstractReactiveCassandraConfiguration {
 
     @Override
     protected boolean getMetricsEnabled() {
-        return false;
+        return true;
     }
 
     @Bean
@@ -41,9 +57,64 @@ public class CassandraConfig extends AbstractReactiveCassandraConfiguration {
         CassandraClusterFactoryBean cluster = new CassandraClusterFactoryBean();
         cluster.setContactPoints(env.getRequiredProperty("cassandra.contact-points"));
         cluster.setPort(Integer.parseInt(env.getRequiredProperty("cassandra.port")));
+        cluster.setMetricsEnabled(getMetricsEnabled());
+        // the driver metrics are exported through micrometer
+        cluster.setJmxReportingEnabled(false);
         return cluster;
     }
 
+    /**
+     * Pool, latency and error metrics of the driver.
+     */
+    @Bean
+    public MeterBinder cassandraDriverMetrics(Cluster cluster) {
+        return registry -> {
+            Metrics metrics = cluster.getMetrics();
+            Gauge.builder("cassandra.driver.connected-hosts", metrics.getConnectedToHosts(), com.codahale.metrics.Gauge::getValue).register(registry);
+            Gauge.builder("cassandra.driver.open-connections", metrics.getOpenConnections(), com.codahale.metrics.Gauge::getValue).register(registry);
+            Gauge.builder("cassandra.driver.in-flight-requests", metrics.getInFlightRequests(), com.codahale.metrics.Gauge::getValue).register(registry);
+            Gauge.builder("cassandra.driver.executor-queue-depth", metrics.getExecutorQueueDepth(), com.codahale.metrics.Gauge::getValue).register(registry);
+            // the driver timer only keeps a sample of the latencies, which gives no cumulative total time: only its count is
+            // exported, the latencies by query being measured by the repository timers
+            FunctionCounter.builder("cassandra.driver.requests", metrics.getRequestsTimer(), com.codahale.metrics.Timer::getCount).register(registry);
+            TimeGauge.builder("cassandra.driver.requests.p99", metrics.getRequestsTimer(), TimeUnit.NANOSECONDS,
+                timer -> timer.getSnapshot().get99thPercentile()).register(registry);
+            Metrics.Errors errors = metrics.getErrorMetrics();
+            bindErrors(registry, "connection", errors.getConnectionErrors());
+            bindErrors(registry, "read-timeout", errors.getReadTimeouts());
+            bindErrors(registry, "write-timeout", errors.getWriteTimeouts());
+            bindErrors(registry, "unavailable", errors.getUnavailables());
+            bindErrors(registry, "client-timeout", errors.getClientTimeouts());
+            bindErrors(registry, "other", errors.getOthers());
+            FunctionCounter.builder("cassandra.driver.retries", errors.getRetries(), Counter::getCount).register(registry);
+            FunctionCounter.builder("cassandra.driver.speculative-executions", errors.getSpeculativeExecutions(), Counter::getCount).register(registry);
+        };
+    }
+
+    private static void bindErrors(MeterRegistry registry, String type, Counter errors) {
+        FunctionCounter.builder("cassandra.driver.errors", errors, Counter::getCount).tag("type", type).register(registry);
+    }
+
+    /**
+     * Latency of every repository method and outcome of the lightweight transactions, tagged by repository bean. Static
+     * so that this configuration is not initialized before the post processors.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        Supplier<MeterRegistry> meterRegistry = SingletonSupplier.of(meterRegistryProvider::getObject);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof Repository)) {
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.addAdvice(new RepositoryMetricsInterceptor(beanName, meterRegistry));
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
     @Bean
     public CassandraMappingContext cassandraMapping(Environment env) {
         CassandraMappingContext mappingContext =  new CassandraMappingContext();
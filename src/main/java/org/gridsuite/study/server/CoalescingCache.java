@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the responses of a backing service, shared by the concurrent reads of the same key.
+ * <p>
+ * Like the study cache, pending reads are cached too, so that an invalidation also discards the reads started before it.
+ * <p>
+ * The last values read can also be kept apart, invalidated or not, to be served while the backing service is
+ * unavailable.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+final class CoalescingCache<K, V> {
+
+    private final AsyncCache<K, V> cache;
+
+    // null, or with a maximum size of 0, to fail when the backing service is unavailable
+    private final Cache<K, V> staleCache;
+
+    private final Counter coalescedRequests;
+
+    private final Counter staleResponses;
+
+    /**
+     * @param name the name of the cache in the metrics
+     * @param service the backing service, to tag the metrics
+     */
+    CoalescingCache(AsyncCache<K, V> cache, Cache<K, V> staleCache, String name, String service, MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.staleCache = staleCache;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), name);
+        coalescedRequests = SingleFlight.coalesced(meterRegistry, service);
+        staleResponses = staleCache != null ? BackingServiceBreaker.staleResponses(meterRegistry, service) : null;
+    }
+
+    /**
+     * @param loader the read of the value from the backing service, only cached if successful
+     */
+    Mono<V> get(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            AtomicBoolean loading = new AtomicBoolean();
+            CompletableFuture<V> value = cache.get(key, (k, executor) -> {
+                loading.set(true);
+                Mono<V> loaded = loader.get();
+                return (staleCache != null ? loaded.doOnNext(v -> staleCache.put(key, v)) : loaded).toFuture();
+            });
+            if (!loading.get() && !value.isDone()) {
+                coalescedRequests.increment();
+            }
+            // a copy, so that a cancelled subscriber does not cancel the read shared with the other subscribers
+            return Mono.fromFuture(value.copy());
+        });
+    }
+
+    /**
+     * @param response the response built from the value of the key
+     * @param staleResponse the response built from the last value read, if the backing service is unavailable
+     */
+    <R> Mono<R> orStale(K key, Mono<R> response, Function<V, R> staleResponse) {
+        return response.onErrorResume(BackingServiceBreaker::isUnavailability, e -> {
+            V value = staleCache != null ? staleCache.getIfPresent(key) : null;
+            if (value == null) {
+                return Mono.error(e);
+            }
+            staleResponses.increment();
+            return Mono.just(staleResponse.apply(value));
+        });
+    }
+
+    /**
+     * @return the values and pending reads of the cache, to invalidate them
+     */
+    ConcurrentMap<K, CompletableFuture<V>> asMap() {
+        return cache.asMap();
+    }
+
+    void invalidate(K key) {
+        cache.synchronous().invalidate(key);
+    }
+}
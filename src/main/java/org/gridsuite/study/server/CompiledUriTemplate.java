@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A URI template of a backing service, parsed once: expanding it only appends its literal parts and its encoded
+ * variables, in the order they appear in the template, after the base URI of the service, to a single builder sized
+ * for the usual values.
+ * <p>
+ * The values are encoded as {@link org.springframework.web.util.UriComponentsBuilder#encode()} encodes the URI
+ * variables, like the WebClient expanding a template: every character but the unreserved ones is percent-encoded,
+ * the reserved ones included, so that a value never adds a path segment or a query parameter. The values made of
+ * unreserved characters only, like the UUIDs and the booleans, are appended as they are.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+final class CompiledUriTemplate {
+
+    /**
+     * The request attribute read by the WebClient metrics for their uri tag, so that the requests are measured by
+     * template rather than by expanded URI.
+     */
+    static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+    private final String template;
+
+    // the literal parts, around the variables
+    private final String[] literals;
+
+    private final int variableCount;
+
+    // the length of the expanded template, for values as long as a UUID
+    private final int expandedLength;
+
+    CompiledUriTemplate(String template) {
+        this.template = template;
+        List<String> literalList = new ArrayList<>();
+        int start = 0;
+        int open = template.indexOf('{');
+        while (open >= 0) {
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed variable in URI template " + template);
+            }
+            literalList.add(template.substring(start, open));
+            start = close + 1;
+            open = template.indexOf('{', start);
+        }
+        literalList.add(template.substring(start));
+        literals = literalList.toArray(new String[0]);
+        variableCount = literals.length - 1;
+        expandedLength = template.length() + 36 * variableCount;
+    }
+
+    String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return the path and query of the template, expanded with the values
+     */
+    String expandPath(Object... values) {
+        return append(new StringBuilder(expandedLength), values).toString();
+    }
+
+    /**
+     * @return the URI of the template from the base URI of its service, expanded with the values
+     */
+    String expand(String baseUri, Object... values) {
+        return append(newBuilder(baseUri), values).toString();
+    }
+
+    /**
+     * @return a builder holding the base URI, with room for the expanded template and a few more query parameters
+     */
+    StringBuilder newBuilder(String baseUri) {
+        return new StringBuilder(baseUri.length() + expandedLength + 64).append(baseUri);
+    }
+
+    StringBuilder append(StringBuilder uri, Object... values) {
+        if (values.length != variableCount) {
+            throw new IllegalArgumentException("URI template " + template + " expects " + variableCount + " values");
+        }
+        for (int i = 0; i < values.length; i++) {
+            uri.append(literals[i]);
+            appendEncoded(uri, String.valueOf(values[i]));
+        }
+        return uri.append(literals[values.length]);
+    }
+
+    /**
+     * Appends a query parameter with each of its values, as {@link org.springframework.web.util.UriComponentsBuilder}
+     * does with a template variable per value: a parameter without value is appended with its name only.
+     */
+    static StringBuilder appendQueryParam(StringBuilder uri, String name, Collection<?> values) {
+        char separator = uri.indexOf("?") < 0 ? '?' : '&';
+        if (values.isEmpty()) {
+            return uri.append(separator).append(name);
+        }
+        for (Object value : values) {
+            uri.append(separator).append(name).append('=');
+            appendEncoded(uri, String.valueOf(value));
+            separator = '&';
+        }
+        return uri;
+    }
+
+    private static void appendEncoded(StringBuilder uri, String value) {
+        uri.append(isUnreserved(value) ? value : UriUtils.encode(value, StandardCharsets.UTF_8));
+    }
+
+    private static boolean isUnreserved(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '.' || c == '_' || c == '~')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
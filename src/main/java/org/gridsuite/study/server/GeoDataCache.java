@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the geographical data of the networks, which don't change once a network is imported.
+ * <p>
+ * The responses carry a strong validator, the hash of the data, so that the clients revalidate their copy with
+ * a conditional request and only receive the data again if it has changed.
+ * <p>
+ * The last data read are also kept apart, expired or not, to be served while the geo-data server is unavailable,
+ * without validator and with {@code Cache-Control: no-store}.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class GeoDataCache {
+
+    private final CoalescingCache<GeoDataKey, GeoData> cache;
+
+    public GeoDataCache(@Value("${study.geo-data-cache.maximum-size-bytes:134217728}") long maximumSizeBytes,
+                        @Value("${study.geo-data-cache.expire-after-access-hours:24}") long expireAfterAccessHours,
+                        @Value("${study.geo-data-cache.stale-maximum-size-bytes:33554432}") long staleMaximumSizeBytes,
+                        MeterRegistry meterRegistry) {
+        AsyncCache<GeoDataKey, GeoData> geoData = Caffeine.newBuilder()
+                .maximumWeight(maximumSizeBytes)
+                // the size in memory of the Latin-1 strings, the usual content of geographical data
+                .<GeoDataKey, GeoData>weigher((key, data) -> data.getBody().length())
+                .expireAfterAccess(Duration.ofHours(expireAfterAccessHours))
+                .recordStats()
+                .buildAsync();
+        // 0 to fail when the geo-data server is unavailable
+        Cache<GeoDataKey, GeoData> staleGeoData = Caffeine.newBuilder()
+                .maximumWeight(staleMaximumSizeBytes)
+                .<GeoDataKey, GeoData>weigher((key, data) -> data.getBody().length())
+                .build();
+        cache = new CoalescingCache<>(geoData, staleGeoData, "geo-data", "geo-data", meterRegistry);
+    }
+
+    /**
+     * @param equipmentType the type of the equipments located by the data
+     * @param loader the read of the data from the geo-data server
+     * @return the data with its validator, answered with a 304 to the requests whose copy is still valid
+     */
+    public Mono<ResponseEntity<String>> get(UUID networkUuid, String equipmentType, Supplier<Mono<String>> loader) {
+        GeoDataKey key = new GeoDataKey(networkUuid, equipmentType);
+        Mono<ResponseEntity<String>> response = cache.get(key, () -> loader.get()
+                .map(body -> new GeoData("\"" + DigestUtils.md5DigestAsHex(body.getBytes(StandardCharsets.UTF_8)) + "\"", body)))
+                .map(data -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .eTag(data.getETag())
+                        // the studies are private to their users, the clients revalidate their copy at each use
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(data.getBody()));
+        // may predate the current data, so without validator for the clients not to revalidate it later
+        return cache.orStale(key, response, data -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noStore())
+                .body(data.getBody()));
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @Getter
+    private static final class GeoDataKey {
+
+        private final UUID networkUuid;
+
+        private final String equipmentType;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static final class GeoData {
+
+        private final String eTag;
+
+        private final String body;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.UUID;
+
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+import static org.gridsuite.study.server.StudyConstants.GEO_DATA_API_VERSION;
+
+/**
+ * Client of the geo-data server, reading the geographical data of the lines and substations of a network.
+ * <p>
+ * The requests are measured by template under the http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class GeoDataClient {
+
+    private static final String SERVICE = "geo-data";
+
+    private static final CompiledUriTemplate LINES = new CompiledUriTemplate(DELIMITER + GEO_DATA_API_VERSION + "/lines?networkUuid={networkUuid}");
+
+    private static final CompiledUriTemplate SUBSTATIONS = new CompiledUriTemplate(DELIMITER + GEO_DATA_API_VERSION + "/substations?networkUuid={networkUuid}");
+
+    private final WebClient webClient;
+
+    private volatile String baseUri;
+
+    public GeoDataClient(@Value("${backing-services.geo-data.base-uri:http://geo-data-store-server/}") String baseUri,
+                         BackingServiceClients backingServiceClients) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+    }
+
+    public Mono<String> getLines(UUID networkUuid) {
+        return get(LINES, networkUuid);
+    }
+
+    public Mono<String> getSubstations(UUID networkUuid) {
+        return get(SUBSTATIONS, networkUuid);
+    }
+
+    private Mono<String> get(CompiledUriTemplate template, UUID networkUuid) {
+        return webClient.get()
+                .uri(URI.create(template.expand(baseUri, networkUuid)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, template.getTemplate())
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
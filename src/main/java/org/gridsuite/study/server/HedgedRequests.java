@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Hedging of the idempotent requests to the replicated backing services: when a request has not been answered after
+ * the usual latency of its endpoint, a percentile of its last latencies, the same request is sent again and the first
+ * response is kept.
+ * <p>
+ * Opt-in by service, with the study.hedging.services property. The hedges are bounded by a budget, a ratio of the
+ * requests sent, so that a slow service is not sent twice as many requests.
+ * <p>
+ * A response answered by the losing request after the winning one, like a streamed response whose body holds its
+ * connection, is released rather than dropped.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class HedgedRequests {
+
+    // the latencies the percentile is computed on, the last ones of the endpoint
+    private static final int LATENCY_WINDOW = 1000;
+
+    // no hedging until the percentile is meaningful
+    private static final int MIN_LATENCY_SAMPLES = 100;
+
+    private static final int LATENCY_PERCENTILE_PERIOD = 50;
+
+    // the hedges that can be sent in a burst
+    private static final double MAX_BUDGET = 10;
+
+    private final Set<String> services;
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final double budgetRatio;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private double budget;
+
+    public HedgedRequests(@Value("${study.hedging.services:}") List<String> services,
+                          @Value("${study.hedging.percentile:0.95}") double percentile,
+                          @Value("${study.hedging.min-delay-ms:20}") long minDelayMs,
+                          @Value("${study.hedging.budget-ratio:0.1}") double budgetRatio,
+                          MeterRegistry meterRegistry) {
+        this.services = new HashSet<>(services);
+        this.percentile = percentile;
+        this.minDelayNanos = Duration.ofMillis(minDelayMs).toNanos();
+        this.budgetRatio = budgetRatio;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param endpoint the endpoint of the service, whose latencies give the delay of the hedge
+     * @param request the request, sent a second time to hedge it
+     */
+    public <T> Mono<T> get(String service, String endpoint, Supplier<Mono<T>> request) {
+        return get(service, endpoint, request, response -> { });
+    }
+
+    /**
+     * @param endpoint the endpoint of the service, whose latencies give the delay of the hedge
+     * @param request the request, sent a second time to hedge it
+     * @param release the release of a response which has lost the race
+     */
+    public <T> Mono<T> get(String service, String endpoint, Supplier<Mono<T>> request, Consumer<? super T> release) {
+        if (!services.contains(service)) {
+            return request.get();
+        }
+        Endpoint stats = endpoints.computeIfAbsent(service + ' ' + endpoint, key -> new Endpoint(service, endpoint, percentile, minDelayNanos, meterRegistry));
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // the first response wins, a response answered while the other one is being emitted is released
+            AtomicBoolean answered = new AtomicBoolean();
+            Mono<T> primary = request.get()
+                    .flatMap(response -> answer(answered, response, release))
+                    // a request cancelled by its hedge has at least lasted until then
+                    .doFinally(s -> {
+                        if (s != SignalType.ON_ERROR) {
+                            stats.record(System.nanoTime() - start);
+                        }
+                    });
+            deposit();
+            long delay = stats.getHedgeDelayNanos();
+            if (delay < 0) {
+                return primary;
+            }
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(delay)).flatMap(t -> {
+                if (!withdraw()) {
+                    return Mono.never();
+                }
+                stats.hedges.increment();
+                // only the winner emits, the other request is cancelled
+                return request.get()
+                        .flatMap(response -> answer(answered, response, release))
+                        .doOnNext(v -> stats.wins.increment());
+            });
+            return Mono.first(primary, hedge);
+        });
+    }
+
+    /**
+     * @return the response if it is the first one, else never completes, for the first one to win the race even if
+     * it is emitted afterwards
+     */
+    private static <T> Mono<T> answer(AtomicBoolean answered, T response, Consumer<? super T> release) {
+        if (answered.compareAndSet(false, true)) {
+            return Mono.just(response);
+        }
+        release.accept(response);
+        return Mono.never();
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(budget + budgetRatio, MAX_BUDGET);
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    /**
+     * The last latencies of an endpoint, and the delay of its hedges they give.
+     */
+    static final class Endpoint {
+
+        private final long[] latencies = new long[LATENCY_WINDOW];
+
+        private final double percentile;
+
+        private final long minDelayNanos;
+
+        private long count;
+
+        // negative until there are enough samples
+        private volatile long hedgeDelayNanos = -1;
+
+        private final Counter hedges;
+
+        private final Counter wins;
+
+        Endpoint(String service, String endpoint, double percentile, long minDelayNanos, MeterRegistry meterRegistry) {
+            this.percentile = percentile;
+            this.minDelayNanos = minDelayNanos;
+            hedges = Counter.builder("study.backend.requests.hedged")
+                    .description("Requests to a backing service sent a second time, the first one being slow")
+                    .tags("service", service, "endpoint", endpoint)
+                    .register(meterRegistry);
+            wins = Counter.builder("study.backend.requests.hedge.wins")
+                    .description("Hedged requests to a backing service answered first by the second request")
+                    .tags("service", service, "endpoint", endpoint)
+                    .register(meterRegistry);
+        }
+
+        long getHedgeDelayNanos() {
+            return hedgeDelayNanos;
+        }
+
+        synchronized void record(long latencyNanos) {
+            latencies[(int) (count % LATENCY_WINDOW)] = latencyNanos;
+            count++;
+            if (count >= MIN_LATENCY_SAMPLES && count % LATENCY_PERCENTILE_PERIOD == 0) {
+                long[] sorted = Arrays.copyOf(latencies, (int) Math.min(count, LATENCY_WINDOW));
+                Arrays.sort(sorted);
+                int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1);
+                hedgeDelayNanos = Math.max(sorted[Math.max(index, 0)], minDelayNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.powsybl.loadflow.LoadFlowResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.UUID;
+
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+import static org.gridsuite.study.server.StudyConstants.LOADFLOW_API_VERSION;
+
+/**
+ * Client of the loadflow server, running the load flows on the networks, which keep their results.
+ * <p>
+ * The requests are measured by template under the http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class LoadFlowClient {
+
+    private static final String SERVICE = "loadflow";
+
+    private static final CompiledUriTemplate RUN = new CompiledUriTemplate(DELIMITER + LOADFLOW_API_VERSION + "/networks/{networkUuid}/run");
+
+    private final WebClient webClient;
+
+    private volatile String baseUri;
+
+    public LoadFlowClient(@Value("${backing-services.loadflow.base-uri:http://loadflow-server/}") String baseUri,
+                          BackingServiceClients backingServiceClients) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+    }
+
+    public Mono<LoadFlowResult> run(UUID networkUuid) {
+        return webClient.put()
+                .uri(URI.create(RUN.expand(baseUri, networkUuid)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, RUN.getTemplate())
+                .retrieve()
+                .bodyToMono(LoadFlowResult.class);
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
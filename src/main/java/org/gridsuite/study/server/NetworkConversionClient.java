@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.gridsuite.study.server.dto.NetworkInfos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+import static org.gridsuite.study.server.StudyConstants.NETWORK_CONVERSION_API_VERSION;
+
+/**
+ * Client of the network-conversion server, importing the cases into the network store and exporting the networks.
+ * <p>
+ * The requests are measured by template under the http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class NetworkConversionClient {
+
+    private static final String SERVICE = "network-conversion";
+
+    private static final CompiledUriTemplate NETWORKS = new CompiledUriTemplate(DELIMITER + NETWORK_CONVERSION_API_VERSION + "/networks?caseUuid={caseUuid}");
+
+    private static final CompiledUriTemplate EXPORT_FORMATS = new CompiledUriTemplate(DELIMITER + NETWORK_CONVERSION_API_VERSION + "/export/formats");
+
+    private static final CompiledUriTemplate EXPORT = new CompiledUriTemplate(DELIMITER + NETWORK_CONVERSION_API_VERSION + "/networks/{networkUuid}/export/{format}");
+
+    private final WebClient webClient;
+
+    private final SingleFlight singleFlight;
+
+    private volatile String baseUri;
+
+    public NetworkConversionClient(@Value("${backing-services.network-conversion.base-uri:http://network-conversion-server/}") String baseUri,
+                                   BackingServiceClients backingServiceClients,
+                                   SingleFlight singleFlight) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+        this.singleFlight = singleFlight;
+    }
+
+    /**
+     * @param errorHandler the error of a failed import
+     */
+    public Mono<NetworkInfos> importCase(UUID caseUuid, Function<ClientResponse, Mono<? extends Throwable>> errorHandler) {
+        return webClient.post()
+                .uri(URI.create(NETWORKS.expand(baseUri, caseUuid)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, NETWORKS.getTemplate())
+                .retrieve()
+                .onStatus(httpStatus -> httpStatus != HttpStatus.OK, errorHandler)
+                .bodyToMono(NetworkInfos.class);
+    }
+
+    public Mono<Collection<String>> getExportFormats() {
+        String uri = EXPORT_FORMATS.expand(baseUri);
+        return singleFlight.get(SERVICE, uri, () -> webClient.get()
+                .uri(URI.create(uri))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, EXPORT_FORMATS.getTemplate())
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Collection<String>>() { }));
+    }
+
+    /**
+     * @return the exported network, streamed as it is received
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportNetwork(UUID networkUuid, String format) {
+        return BackingServiceClients.streamResponse(webClient.get()
+                .uri(URI.create(EXPORT.expand(baseUri, networkUuid, format)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, EXPORT.getTemplate()), null);
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Cache of the network-map responses, kept as received (still encoded) and bounded by their total size.
+ * <p>
+ * A modification only invalidates the responses of its network which may contain the impacted substations: the
+ * responses filtered on other substations are kept. The same substations are sent to the clients with the study
+ * update, for them to refresh the same part of their map.
+ * <p>
+ * The responses of the whole network for all the equipments, and the responses larger than a maximum size, are not
+ * cached but streamed through: joining them would hold the whole network in memory for each read. The requests whose
+ * response has been too large are then streamed through directly, until they would have expired.
+ * <p>
+ * The responses are cached by the encodings of the network-map server, gzip or identity, rather than by the raw
+ * Accept-Encoding header of the clients.
+ * <p>
+ * The last responses read are also served while the network-map server is unavailable: they are sent with {@code Cache-Control: no-store}, for the clients not to keep them as the data of
+ * the current version of the study.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class NetworkMapCache {
+
+    // the only equipments whose map data don't contain values computed by the load flow
+    private static final Set<String> LOAD_FLOW_INDEPENDENT_PATHS = Set.of("substations");
+
+    // the equipments whose map data of the whole network are too large to be cached
+    private static final Set<String> UNCACHED_PATHS = Set.of("all");
+
+    private static final String GZIP = "gzip";
+
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private final CoalescingCache<MapDataKey, MapData> cache;
+
+    private final int maximumEntrySizeBytes;
+
+    // the requests whose response is larger than the maximum entry size
+    private final Cache<MapDataKey, Boolean> oversizedKeys;
+
+    public NetworkMapCache(@Value("${study.network-map-cache.maximum-size-bytes:268435456}") long maximumSizeBytes,
+                           @Value("${study.network-map-cache.expire-after-write-seconds:600}") long expireAfterWriteSeconds,
+                           @Value("${study.network-map-cache.stale-maximum-size-bytes:67108864}") long staleMaximumSizeBytes,
+                           @Value("${study.network-map-cache.maximum-entry-size-bytes:16777216}") int maximumEntrySizeBytes,
+                           MeterRegistry meterRegistry) {
+        this.maximumEntrySizeBytes = maximumEntrySizeBytes;
+        AsyncCache<MapDataKey, MapData> mapData = Caffeine.newBuilder()
+                .maximumWeight(maximumSizeBytes)
+                .<MapDataKey, MapData>weigher((key, data) -> data.getBody().length)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .buildAsync();
+        // 0 to fail when the network-map server is unavailable
+        Cache<MapDataKey, MapData> staleMapData = Caffeine.newBuilder()
+                .maximumWeight(staleMaximumSizeBytes)
+                .<MapDataKey, MapData>weigher((key, data) -> data.getBody().length)
+                .build();
+        cache = new CoalescingCache<>(mapData, staleMapData, "network-map", "network-map", meterRegistry);
+        oversizedKeys = Caffeine.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .build();
+    }
+
+    /**
+     * @param substationsIds the substations the response is filtered on, null for the whole network
+     * @param acceptEncoding the Accept-Encoding header of the client
+     * @param loader the streamed response of the network-map server for an Accept-Encoding header, only cached if
+     * successful
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> get(UUID networkUuid, String equipmentPath, List<String> substationsIds, String acceptEncoding,
+                                                     Function<String, Mono<ResponseEntity<Flux<DataBuffer>>>> loader) {
+        String encoding = acceptsGzip(acceptEncoding) ? GZIP : null;
+        MapDataKey key = new MapDataKey(networkUuid, equipmentPath, substationsIds != null ? new TreeSet<>(substationsIds) : null, encoding);
+        if (substationsIds == null && UNCACHED_PATHS.contains(equipmentPath) || oversizedKeys.getIfPresent(key) != null) {
+            return loader.apply(acceptEncoding);
+        }
+        Mono<ResponseEntity<Flux<DataBuffer>>> response = cache.get(key, () -> loader.apply(encoding)
+                .flatMap(this::toMapData)
+                .doOnError(DataBufferLimitException.class, e -> oversizedKeys.put(key, Boolean.TRUE)))
+                .map(data -> toResponse(data, CacheControl.empty()))
+                // the read of the response has been given up, the shared read is failed for all its subscribers
+                .onErrorResume(DataBufferLimitException.class, e -> loader.apply(acceptEncoding));
+        // may predate the current version of the study, so never validated by its entity tag
+        return cache.orStale(key, response, data -> toResponse(data, CacheControl.noStore()));
+    }
+
+    /**
+     * Invalidates the responses of the network which may contain the given substations.
+     */
+    public void invalidateSubstations(UUID networkUuid, Collection<String> substationsIds) {
+        cache.asMap().keySet().removeIf(key -> key.getNetworkUuid().equals(networkUuid)
+                && (key.getSubstationsIds() == null || !Collections.disjoint(key.getSubstationsIds(), substationsIds)));
+    }
+
+    /**
+     * Invalidates the responses of the network containing values computed by the load flow.
+     */
+    public void invalidateLoadFlowResults(UUID networkUuid) {
+        cache.asMap().keySet().removeIf(key -> key.getNetworkUuid().equals(networkUuid)
+                && !LOAD_FLOW_INDEPENDENT_PATHS.contains(key.getEquipmentPath()));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> toResponse(MapData data, CacheControl cacheControl) {
+        return ResponseEntity.ok()
+                .headers(data.getHeaders())
+                .cacheControl(cacheControl)
+                .contentLength(data.getBody().length)
+                .body(Flux.defer(() -> Flux.just(bufferFactory.wrap(data.getBody()))));
+    }
+
+    /**
+     * Joins a response, unless it is larger than the maximum entry size: its connection is then released if its
+     * length is known, before reading it.
+     */
+    private Mono<MapData> toMapData(ResponseEntity<Flux<DataBuffer>> response) {
+        if (response.getHeaders().getContentLength() > maximumEntrySizeBytes) {
+            BackingServiceClients.releaseBody(response);
+            return Mono.error(new DataBufferLimitException("Network map response larger than " + maximumEntrySizeBytes + " bytes"));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(response.getHeaders().getContentType());
+        headers.addAll(HttpHeaders.CONTENT_ENCODING, response.getHeaders().getOrEmpty(HttpHeaders.CONTENT_ENCODING));
+        return DataBufferUtils.join(Objects.requireNonNull(response.getBody()), maximumEntrySizeBytes)
+                .map(buffer -> {
+                    byte[] body = new byte[buffer.readableByteCount()];
+                    buffer.read(body);
+                    DataBufferUtils.release(buffer);
+                    return new MapData(HttpHeaders.readOnlyHttpHeaders(headers), body);
+                })
+                .defaultIfEmpty(new MapData(HttpHeaders.readOnlyHttpHeaders(headers), new byte[0]));
+    }
+
+    /**
+     * @return true if the client accepts gzip, explicitly or with any encoding, the only encoding of the network-map
+     * server
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (GZIP.equalsIgnoreCase(name)) {
+                gzipQuality = quality;
+            } else if ("*".equals(name)) {
+                anyQuality = quality;
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : anyQuality;
+        return quality != null && quality > 0;
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @Getter
+    private static final class MapDataKey {
+
+        private final UUID networkUuid;
+
+        private final String equipmentPath;
+
+        private final Set<String> substationsIds;
+
+        // gzip, or null for identity
+        private final String encoding;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static final class MapData {
+
+        private final HttpHeaders headers;
+
+        private final byte[] body;
+    }
+}
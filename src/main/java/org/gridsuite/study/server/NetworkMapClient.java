@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+import static org.gridsuite.study.server.StudyConstants.NETWORK_MAP_API_VERSION;
+import static org.gridsuite.study.server.StudyService.QUERY_PARAM_SUBSTATION_ID;
+
+/**
+ * Client of the network-map server, reading the map data of the equipments of a network.
+ * <p>
+ * The URI templates of all the kinds of equipments are compiled with the client, and the requests are measured by
+ * template under the http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class NetworkMapClient {
+
+    private static final String SERVICE = "network-map";
+
+    private static final Map<String, CompiledUriTemplate> EQUIPMENTS_TEMPLATES = Stream.of("substations", "lines",
+            "2-windings-transformers", "3-windings-transformers", "generators", "batteries", "dangling-lines", "hvdc-lines",
+            "lcc-converter-stations", "vsc-converter-stations", "loads", "shunt-compensators", "static-var-compensators", "all")
+            .collect(Collectors.toUnmodifiableMap(Function.identity(),
+                path -> new CompiledUriTemplate(DELIMITER + NETWORK_MAP_API_VERSION + DELIMITER + path + "/{networkUuid}")));
+
+    private final WebClient webClient;
+
+    private final HedgedRequests hedgedRequests;
+
+    private volatile String baseUri;
+
+    public NetworkMapClient(@Value("${backing-services.network-map.base-uri:http://network-map-store-server/}") String baseUri,
+                            BackingServiceClients backingServiceClients,
+                            HedgedRequests hedgedRequests) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+        this.hedgedRequests = hedgedRequests;
+    }
+
+    /**
+     * @param equipmentPath the kind of equipments, as named in the network-map API
+     * @param substationsIds the substations of the equipments, null for the whole network
+     * @param acceptEncoding the encodings accepted by the client, the response is streamed as it is received
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getEquipments(String equipmentPath, UUID networkUuid, List<String> substationsIds,
+                                                                String acceptEncoding) {
+        CompiledUriTemplate template = EQUIPMENTS_TEMPLATES.get(equipmentPath);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown equipments " + equipmentPath);
+        }
+        StringBuilder uri = template.append(template.newBuilder(baseUri), networkUuid);
+        if (substationsIds != null && !substationsIds.isEmpty()) {
+            CompiledUriTemplate.appendQueryParam(uri, QUERY_PARAM_SUBSTATION_ID, substationsIds);
+        }
+        URI requestUri = URI.create(uri.toString());
+
+        return hedgedRequests.get(SERVICE, equipmentPath, () -> BackingServiceClients.streamResponse(webClient.get()
+                .uri(requestUri)
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, template.getTemplate()), acceptEncoding),
+            BackingServiceClients::releaseBody);
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
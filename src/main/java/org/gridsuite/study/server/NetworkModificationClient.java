@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+import static org.gridsuite.study.server.StudyConstants.NETWORK_MODIFICATION_API_VERSION;
+
+/**
+ * Client of the network-modification server, modifying the networks of the studies.
+ * <p>
+ * Each modification answers the substations it has impacted. The requests are measured by template under the
+ * http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class NetworkModificationClient {
+
+    private static final String SERVICE = "network-modification";
+
+    private static final CompiledUriTemplate SWITCH = new CompiledUriTemplate(DELIMITER + NETWORK_MODIFICATION_API_VERSION
+            + "/networks/{networkUuid}/switches/{switchId}?open={open}");
+
+    private static final CompiledUriTemplate GROOVY = new CompiledUriTemplate(DELIMITER + NETWORK_MODIFICATION_API_VERSION + "/networks/{networkUuid}/groovy/");
+
+    private static final ParameterizedTypeReference<Set<String>> SUBSTATIONS_IDS = new ParameterizedTypeReference<>() { };
+
+    private final WebClient webClient;
+
+    private volatile String baseUri;
+
+    public NetworkModificationClient(@Value("${backing-services.network-modification.base-uri:http://network-modification-server/}") String baseUri,
+                                     BackingServiceClients backingServiceClients) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+    }
+
+    /**
+     * @return the impacted substations
+     */
+    public Mono<Set<String>> changeSwitchState(UUID networkUuid, String switchId, boolean open) {
+        return webClient.put()
+                .uri(URI.create(SWITCH.expand(baseUri, networkUuid, switchId, open)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, SWITCH.getTemplate())
+                .retrieve()
+                .bodyToMono(SUBSTATIONS_IDS);
+    }
+
+    /**
+     * @return the impacted substations
+     */
+    public Mono<Set<String>> applyGroovyScript(UUID networkUuid, String groovyScript) {
+        return webClient.put()
+                .uri(URI.create(GROOVY.expand(baseUri, networkUuid)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, GROOVY.getTemplate())
+                .body(BodyInserters.fromValue(groovyScript))
+                .retrieve()
+                .bodyToMono(SUBSTATIONS_IDS);
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Client of the network store server, reading the topology of the networks.
+ * <p>
+ * The network store server is called directly rather than through its dedicated client, which is blocking, and only
+ * the topology of the equipments is decoded, as the document is received. The requests are measured by template
+ * under the http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class NetworkStoreServerClient {
+
+    private static final String SERVICE = "network-store";
+
+    // the base URI of the network store ends with a slash
+    private static final CompiledUriTemplate VOLTAGE_LEVELS = new CompiledUriTemplate("v1/networks/{networkUuid}/voltage-levels");
+
+    private static final CompiledUriTemplate SUBSTATIONS = new CompiledUriTemplate("v1/networks/{networkUuid}/substations");
+
+    private final WebClient webClient;
+
+    private volatile String baseUri;
+
+    public NetworkStoreServerClient(@Value("${network-store-server.base-uri:http://network-store-server/}") String baseUri,
+                              BackingServiceClients backingServiceClients) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+    }
+
+    public <T> Mono<List<T>> getVoltageLevels(UUID networkUuid, NetworkTopologyDecoder.EquipmentFactory<T> factory) {
+        return getEquipments(VOLTAGE_LEVELS, networkUuid, factory);
+    }
+
+    public <T> Mono<List<T>> getSubstations(UUID networkUuid, NetworkTopologyDecoder.EquipmentFactory<T> factory) {
+        return getEquipments(SUBSTATIONS, networkUuid, factory);
+    }
+
+    private <T> Mono<List<T>> getEquipments(CompiledUriTemplate template, UUID networkUuid, NetworkTopologyDecoder.EquipmentFactory<T> factory) {
+        return NetworkTopologyDecoder.decode(webClient.get()
+                .uri(URI.create(template.expand(baseUri, networkUuid)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, template.getTemplate())
+                .retrieve()
+                .bodyToFlux(DataBuffer.class), factory);
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.gridsuite.study.server.dto.SubstationAttributes;
+import org.gridsuite.study.server.dto.VoltageLevelAttributes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of the topology of the networks, their voltage levels and substations, read from the network store.
+ * <p>
+ * The topology is read by the clients at each display of a network, but is only changed by the modifications
+ * creating or removing equipments, like the groovy scripts: the switches and the load flows leave it unchanged.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class NetworkTopologyCache {
+
+    private final CoalescingCache<UUID, VoltageLevels> voltageLevels;
+
+    private final CoalescingCache<UUID, List<SubstationAttributes>> substations;
+
+    public NetworkTopologyCache(@Value("${study.topology-cache.maximum-networks:200}") long maximumNetworks,
+                                @Value("${study.topology-cache.expire-after-access-seconds:3600}") long expireAfterAccessSeconds,
+                                MeterRegistry meterRegistry) {
+        voltageLevels = new CoalescingCache<>(Caffeine.newBuilder()
+                .maximumSize(maximumNetworks)
+                .expireAfterAccess(Duration.ofSeconds(expireAfterAccessSeconds))
+                .recordStats()
+                .buildAsync(), null, "network-voltage-levels", "network-store", meterRegistry);
+        substations = new CoalescingCache<>(Caffeine.newBuilder()
+                .maximumSize(maximumNetworks)
+                .expireAfterAccess(Duration.ofSeconds(expireAfterAccessSeconds))
+                .recordStats()
+                .buildAsync(), null, "network-substations", "network-store", meterRegistry);
+    }
+
+    /**
+     * @param loader the read of the voltage levels from the network store
+     */
+    public Mono<List<VoltageLevelAttributes>> getVoltageLevels(UUID networkUuid, Supplier<Mono<List<VoltageLevelAttributes>>> loader) {
+        return voltageLevels.get(networkUuid, () -> loader.get().map(VoltageLevels::new)).map(VoltageLevels::getVoltageLevels);
+    }
+
+    /**
+     * @param loader the read of the voltage levels from the network store
+     * @return the substation of the voltage level, empty if unknown
+     */
+    public Mono<String> getVoltageLevelSubstationId(UUID networkUuid, String voltageLevelId, Supplier<Mono<List<VoltageLevelAttributes>>> loader) {
+        return voltageLevels.get(networkUuid, () -> loader.get().map(VoltageLevels::new))
+                .flatMap(levels -> Mono.justOrEmpty(levels.getSubstationIds().get(voltageLevelId)));
+    }
+
+    /**
+     * @param loader the read of the substations from the network store
+     */
+    public Mono<List<SubstationAttributes>> getSubstations(UUID networkUuid, Supplier<Mono<List<SubstationAttributes>>> loader) {
+        return substations.get(networkUuid, loader);
+    }
+
+    /**
+     * Invalidates the topology of the network, after a modification which may have created or removed equipments.
+     */
+    public void invalidateNetwork(UUID networkUuid) {
+        voltageLevels.invalidate(networkUuid);
+        substations.invalidate(networkUuid);
+    }
+
+    @Getter
+    private static final class VoltageLevels {
+
+        private final List<VoltageLevelAttributes> voltageLevels;
+
+        // the substation of each voltage level, for the diagrams to be invalidated with their substation
+        private final Map<String, String> substationIds;
+
+        private VoltageLevels(List<VoltageLevelAttributes> voltageLevels) {
+            this.voltageLevels = voltageLevels;
+            this.substationIds = voltageLevels.stream()
+                    .filter(level -> level.getSubstationId() != null)
+                    .collect(Collectors.toMap(VoltageLevelAttributes::getId, VoltageLevelAttributes::getSubstationId));
+        }
+    }
+}
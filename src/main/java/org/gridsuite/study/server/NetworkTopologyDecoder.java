@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoder of the equipments of a network read from the network store, keeping only their topology: their id, name
+ * and substation.
+ * <p>
+ * The document is parsed as its buffers are received, without building the attributes of the equipments, so that
+ * only the equipments kept are held in memory.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+final class NetworkTopologyDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // the depths of the equipments in the document, {"data": [{"id": ..., "attributes": {...}}, ...]}
+    private static final int DATA_DEPTH = 2;
+    private static final int EQUIPMENT_DEPTH = 3;
+    private static final int ATTRIBUTES_DEPTH = 4;
+
+    @FunctionalInterface
+    interface EquipmentFactory<T> {
+
+        /**
+         * @param name the name of the equipment, null if it has none
+         * @param substationId the substation of the equipment, null if it has none
+         */
+        T create(String id, String name, String substationId);
+    }
+
+    private NetworkTopologyDecoder() {
+    }
+
+    static <T> Mono<List<T>> decode(Flux<DataBuffer> body, EquipmentFactory<T> factory) {
+        return Mono.defer(() -> {
+            Extractor<T> extractor = new Extractor<>(factory);
+            return body.doOnNext(extractor::feed)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .then(Mono.fromCallable(extractor::end));
+        });
+    }
+
+    private static final class Extractor<T> {
+
+        private final EquipmentFactory<T> factory;
+
+        private final JsonParser parser;
+
+        private final List<T> equipments = new ArrayList<>();
+
+        private int depth;
+
+        private String fieldName;
+
+        private boolean inData;
+
+        private boolean inAttributes;
+
+        private String id;
+
+        private String name;
+
+        private String substationId;
+
+        private Extractor(EquipmentFactory<T> factory) {
+            this.factory = factory;
+            try {
+                parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void feed(DataBuffer buffer) {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+            try {
+                ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+                parse();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<T> end() throws IOException {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+            parse();
+            parser.close();
+            return equipments;
+        }
+
+        // the tokens of the buffers fed so far, a token split across two buffers is read with the second one
+        private void parse() throws IOException {
+            JsonToken token = parser.nextToken();
+            while (token != null && token != JsonToken.NOT_AVAILABLE) {
+                switch (token) {
+                    case FIELD_NAME:
+                        fieldName = parser.getCurrentName();
+                        break;
+                    case START_OBJECT:
+                    case START_ARRAY:
+                        startStructure(token);
+                        break;
+                    case END_OBJECT:
+                    case END_ARRAY:
+                        endStructure(token);
+                        break;
+                    case VALUE_STRING:
+                        readValue();
+                        break;
+                    default:
+                        // the other values are skipped
+                        break;
+                }
+                token = parser.nextToken();
+            }
+        }
+
+        private void startStructure(JsonToken token) {
+            depth++;
+            if (depth == DATA_DEPTH && token == JsonToken.START_ARRAY && "data".equals(fieldName)) {
+                inData = true;
+            } else if (inData && depth == EQUIPMENT_DEPTH && token == JsonToken.START_OBJECT) {
+                id = null;
+                name = null;
+                substationId = null;
+            } else if (inData && depth == ATTRIBUTES_DEPTH && token == JsonToken.START_OBJECT && "attributes".equals(fieldName)) {
+                inAttributes = true;
+            }
+            fieldName = null;
+        }
+
+        private void endStructure(JsonToken token) {
+            if (inData && depth == EQUIPMENT_DEPTH && token == JsonToken.END_OBJECT) {
+                if (id != null) {
+                    equipments.add(factory.create(id, name, substationId));
+                }
+            } else if (depth == ATTRIBUTES_DEPTH) {
+                inAttributes = false;
+            } else if (depth == DATA_DEPTH) {
+                inData = false;
+            }
+            depth--;
+        }
+
+        private void readValue() throws IOException {
+            if (inData && depth == EQUIPMENT_DEPTH && "id".equals(fieldName)) {
+                id = parser.getText();
+            } else if (inAttributes && depth == ATTRIBUTES_DEPTH) {
+                if ("name".equals(fieldName)) {
+                    name = parser.getText();
+                } else if ("substationId".equals(fieldName)) {
+                    substationId = parser.getText();
+                }
+            }
+        }
+    }
+}
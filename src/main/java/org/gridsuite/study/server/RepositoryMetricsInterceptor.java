@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.cassandra.repository.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Times the queries of a reactive repository, from the subscription to the termination of the returned publisher, by
+ * method and outcome. The outcomes of the lightweight transactions, the {@link Query} methods with an {@code IF} clause,
+ * are counted too.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    static final String QUERY_TIMER = "study.repository.queries";
+
+    static final String LWT_COUNTER = "study.repository.lwt";
+
+    private static final Pattern LWT_PATTERN = Pattern.compile("\\sIF\\s", Pattern.CASE_INSENSITIVE);
+
+    private final String repository;
+
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    // built at the first call of each method, rather than looked up in the registry at each query
+    private final Map<Method, MethodMeters> methodMeters = new ConcurrentHashMap<>();
+
+    RepositoryMetricsInterceptor(String repository, Supplier<MeterRegistry> meterRegistry) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (!(result instanceof Mono) && !(result instanceof Flux)) {
+            return result;
+        }
+        MethodMeters meters = methodMeters.computeIfAbsent(invocation.getMethod(), MethodMeters::new);
+        if (result instanceof Mono) {
+            Mono<?> mono = (Mono<?>) result;
+            if (meters.isLightweightTransaction()) {
+                mono = mono.doOnNext(meters::countLightweightTransaction);
+            }
+            Mono<?> query = mono;
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return query.doFinally(signal -> meters.record(signal, start));
+            });
+        }
+        Flux<?> query = (Flux<?>) result;
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return query.doFinally(signal -> meters.record(signal, start));
+        });
+    }
+
+    private final class MethodMeters {
+
+        private final Timer successes;
+
+        private final Timer errors;
+
+        private final Timer cancellations;
+
+        // null if the method is not a lightweight transaction
+        private final Counter applied;
+
+        private final Counter notApplied;
+
+        private MethodMeters(Method method) {
+            successes = timer(method, "success");
+            errors = timer(method, "error");
+            cancellations = timer(method, "cancel");
+            Query query = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+            if (query != null && LWT_PATTERN.matcher(query.value()).find()) {
+                applied = lightweightTransactionCounter(method, true);
+                notApplied = lightweightTransactionCounter(method, false);
+            } else {
+                applied = null;
+                notApplied = null;
+            }
+        }
+
+        boolean isLightweightTransaction() {
+            return applied != null;
+        }
+
+        void countLightweightTransaction(Object result) {
+            (Boolean.TRUE.equals(result) ? applied : notApplied).increment();
+        }
+
+        void record(SignalType signal, long start) {
+            Timer timer;
+            if (signal == SignalType.ON_COMPLETE) {
+                timer = successes;
+            } else if (signal == SignalType.ON_ERROR) {
+                timer = errors;
+            } else {
+                timer = cancellations;
+            }
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        private Timer timer(Method method, String outcome) {
+            return Timer.builder(QUERY_TIMER)
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry.get());
+        }
+
+        private Counter lightweightTransactionCounter(Method method, boolean outcome) {
+            return Counter.builder(LWT_COUNTER)
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .tag("applied", String.valueOf(outcome))
+                    .register(meterRegistry.get());
+        }
+    }
+}
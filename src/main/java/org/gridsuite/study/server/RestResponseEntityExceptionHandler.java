@@ -25,6 +25,7 @@ public class RestResponseEntityExceptionHandler {
         switch (studyException.getType()) {
             case STUDY_NOT_FOUND:
             case SECURITY_ANALYSIS_NOT_FOUND:
+            case UPLOAD_NOT_FOUND:
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(studyException.getType());
             case CASE_NOT_FOUND:
                 return ResponseEntity.status(HttpStatus.FAILED_DEPENDENCY).body(CASE_NOT_FOUND);
@@ -38,6 +39,16 @@ public class RestResponseEntityExceptionHandler {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(SECURITY_ANALYSIS_RUNNING);
             case NOT_ALLOWED:
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(NOT_ALLOWED);
+            case INVALID_PAGE_REQUEST:
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_PAGE_REQUEST);
+            case INVALID_BATCH_REQUEST:
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_BATCH_REQUEST);
+            case UPLOAD_INCOMPLETE:
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(UPLOAD_INCOMPLETE);
+            case UPLOAD_TOO_LARGE:
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(UPLOAD_TOO_LARGE);
+            case BACKING_SERVICE_UNAVAILABLE:
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(BACKING_SERVICE_UNAVAILABLE);
             default:
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+import static org.gridsuite.study.server.StudyConstants.SECURITY_ANALYSIS_API_VERSION;
+import static org.gridsuite.study.server.StudyException.Type.SECURITY_ANALYSIS_NOT_FOUND;
+
+/**
+ * Client of the security-analysis server, running the security analyses and reading their results.
+ * <p>
+ * The identical reads in flight are coalesced, and the requests are measured by template under the
+ * http.client.requests meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class SecurityAnalysisClient {
+
+    private static final String SERVICE = "security-analysis";
+
+    private static final CompiledUriTemplate RUN_AND_SAVE = new CompiledUriTemplate(DELIMITER + SECURITY_ANALYSIS_API_VERSION + "/networks/{networkUuid}/run-and-save");
+
+    private static final CompiledUriTemplate RESULT = new CompiledUriTemplate(DELIMITER + SECURITY_ANALYSIS_API_VERSION + "/results/{resultUuid}");
+
+    private static final CompiledUriTemplate STATUS = new CompiledUriTemplate(DELIMITER + SECURITY_ANALYSIS_API_VERSION + "/results/{resultUuid}/status");
+
+    private static final CompiledUriTemplate INVALIDATE_STATUS = new CompiledUriTemplate(DELIMITER + SECURITY_ANALYSIS_API_VERSION
+            + "/results/{resultUuid}/invalidate-status");
+
+    private final WebClient webClient;
+
+    private final SingleFlight singleFlight;
+
+    private volatile String baseUri;
+
+    public SecurityAnalysisClient(@Value("${backing-services.security-analysis-server.base-uri:http://security-analysis-server/}") String baseUri,
+                                  BackingServiceClients backingServiceClients,
+                                  SingleFlight singleFlight) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+        this.singleFlight = singleFlight;
+    }
+
+    /**
+     * @param receiver the encoded receiver of the result message
+     * @param parameters the JSON parameters of the analysis
+     * @return the result of the analysis, saved by the server
+     */
+    public Mono<UUID> runAndSave(UUID networkUuid, List<String> contingencyListNames, String receiver, String parameters) {
+        StringBuilder uri = RUN_AND_SAVE.append(RUN_AND_SAVE.newBuilder(baseUri), networkUuid);
+        CompiledUriTemplate.appendQueryParam(uri, "contingencyListName", contingencyListNames);
+        CompiledUriTemplate.appendQueryParam(uri, "receiver", List.of(receiver));
+        return webClient.post()
+                .uri(URI.create(uri.toString()))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, RUN_AND_SAVE.getTemplate())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(parameters))
+                .retrieve()
+                .bodyToMono(UUID.class);
+    }
+
+    public Mono<String> getResult(UUID resultUuid, List<String> limitTypes) {
+        String uri = CompiledUriTemplate.appendQueryParam(RESULT.append(RESULT.newBuilder(baseUri), resultUuid), "limitType", limitTypes).toString();
+        return get(RESULT, uri);
+    }
+
+    public Mono<String> getStatus(UUID resultUuid) {
+        return get(STATUS, STATUS.expand(baseUri, resultUuid));
+    }
+
+    public Mono<Void> invalidateStatus(UUID resultUuid) {
+        return webClient.put()
+                .uri(URI.create(INVALIDATE_STATUS.expand(baseUri, resultUuid)))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, INVALIDATE_STATUS.getTemplate())
+                .retrieve()
+                .bodyToMono(Void.class);
+    }
+
+    private Mono<String> get(CompiledUriTemplate template, String uri) {
+        return singleFlight.get(SERVICE, uri, () -> webClient.get()
+                .uri(URI.create(uri))
+                .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, template.getTemplate())
+                .retrieve()
+                .onStatus(httpStatus -> httpStatus == HttpStatus.NOT_FOUND, clientResponse -> Mono.error(new StudyException(SECURITY_ANALYSIS_NOT_FOUND)))
+                .bodyToMono(String.class));
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalescing of the identical idempotent requests to the backing services: a request sent while the same one is
+ * still in flight shares its response instead of being sent again.
+ * <p>
+ * Only meant for the requests which are not cached: the caches already share their pending reads, and drop them
+ * when they are invalidated, which a request joining an older flight would defeat.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class SingleFlight {
+
+    static final String COALESCED_REQUESTS_METER = "study.backend.requests.coalesced";
+
+    private final ConcurrentMap<String, Mono<?>> flights = new ConcurrentHashMap<>();
+
+    // built at the first coalesced request to each service, rather than looked up in the registry at each one
+    private final ConcurrentMap<String, Counter> coalescedRequests = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param service the backing service, to tag the metrics
+     * @param uri the request, always read as the same type
+     * @param request the exchange with the backing service, completed even if the requests sharing it are cancelled
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> get(String service, String uri, Supplier<Mono<T>> request) {
+        return Mono.defer(() -> {
+            AtomicBoolean sent = new AtomicBoolean();
+            Mono<T> flight = (Mono<T>) flights.computeIfAbsent(uri, key -> {
+                sent.set(true);
+                AtomicReference<Mono<T>> self = new AtomicReference<>();
+                Mono<T> shared = Mono.defer(request)
+                        .doFinally(s -> flights.remove(key, self.get()))
+                        // the requests joining the flight as it ends still get its response
+                        .cache();
+                self.set(shared);
+                return shared;
+            });
+            if (!sent.get()) {
+                coalescedRequests.computeIfAbsent(service, s -> coalesced(meterRegistry, s)).increment();
+            }
+            return flight;
+        });
+    }
+
+    static Counter coalesced(MeterRegistry meterRegistry, String service) {
+        return Counter.builder(COALESCED_REQUESTS_METER)
+                .description("Requests to a backing service which shared the response of an identical request in flight")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.UUID;
+
+import static org.gridsuite.study.server.StudyConstants.DELIMITER;
+import static org.gridsuite.study.server.StudyConstants.SINGLE_LINE_DIAGRAM_API_VERSION;
+
+/**
+ * Client of the single-line-diagram server, drawing the diagrams of the voltage levels and of the substations.
+ * <p>
+ * A diagram is read in two steps: the request is built first, its path identifying the diagram in the caches, and
+ * sent only if the diagram is not cached. The requests are measured by template under the http.client.requests
+ * meters.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class SingleLineDiagramClient {
+
+    private static final String SERVICE = "single-line-diagram";
+
+    private static final String DIAGRAM_PARAMETERS = "?useName={useName}&centerLabel={centerLabel}&diagonalLabel={diagonalLabel}"
+            + "&topologicalColoring={topologicalColoring}";
+
+    private static final String SUBSTATION_DIAGRAM_PARAMETERS = DIAGRAM_PARAMETERS + "&substationLayout={substationLayout}";
+
+    private static final CompiledUriTemplate SVG = new CompiledUriTemplate(DELIMITER + SINGLE_LINE_DIAGRAM_API_VERSION
+            + "/svg/{networkUuid}/{voltageLevelId}" + DIAGRAM_PARAMETERS);
+
+    private static final CompiledUriTemplate SVG_AND_METADATA = new CompiledUriTemplate(DELIMITER + SINGLE_LINE_DIAGRAM_API_VERSION
+            + "/svg-and-metadata/{networkUuid}/{voltageLevelId}" + DIAGRAM_PARAMETERS);
+
+    private static final CompiledUriTemplate SUBSTATION_SVG = new CompiledUriTemplate(DELIMITER + SINGLE_LINE_DIAGRAM_API_VERSION
+            + "/substation-svg/{networkUuid}/{substationId}" + SUBSTATION_DIAGRAM_PARAMETERS);
+
+    private static final CompiledUriTemplate SUBSTATION_SVG_AND_METADATA = new CompiledUriTemplate(DELIMITER + SINGLE_LINE_DIAGRAM_API_VERSION
+            + "/substation-svg-and-metadata/{networkUuid}/{substationId}" + SUBSTATION_DIAGRAM_PARAMETERS);
+
+    private final WebClient webClient;
+
+    private final HedgedRequests hedgedRequests;
+
+    private volatile String baseUri;
+
+    public SingleLineDiagramClient(@Value("${backing-services.single-line-diagram.base-uri:http://single-line-diagram-server/}") String baseUri,
+                                   BackingServiceClients backingServiceClients,
+                                   HedgedRequests hedgedRequests) {
+        this.baseUri = baseUri;
+        this.webClient = backingServiceClients.create(SERVICE);
+        this.hedgedRequests = hedgedRequests;
+    }
+
+    public DiagramRequest voltageLevelSvg(UUID networkUuid, String voltageLevelId, boolean useName, boolean centerLabel,
+                                          boolean diagonalLabel, boolean topologicalColoring) {
+        return new DiagramRequest("svg", SVG, SVG.expandPath(networkUuid, voltageLevelId, useName, centerLabel, diagonalLabel, topologicalColoring));
+    }
+
+    public DiagramRequest voltageLevelSvgAndMetadata(UUID networkUuid, String voltageLevelId, boolean useName, boolean centerLabel,
+                                                     boolean diagonalLabel, boolean topologicalColoring) {
+        return new DiagramRequest("svg-and-metadata", SVG_AND_METADATA,
+                SVG_AND_METADATA.expandPath(networkUuid, voltageLevelId, useName, centerLabel, diagonalLabel, topologicalColoring));
+    }
+
+    public DiagramRequest substationSvg(UUID networkUuid, String substationId, boolean useName, boolean centerLabel,
+                                        boolean diagonalLabel, boolean topologicalColoring, String substationLayout) {
+        return new DiagramRequest("substation-svg", SUBSTATION_SVG,
+                SUBSTATION_SVG.expandPath(networkUuid, substationId, useName, centerLabel, diagonalLabel, topologicalColoring, substationLayout));
+    }
+
+    public DiagramRequest substationSvgAndMetadata(UUID networkUuid, String substationId, boolean useName, boolean centerLabel,
+                                                   boolean diagonalLabel, boolean topologicalColoring, String substationLayout) {
+        return new DiagramRequest("substation-svg-and-metadata", SUBSTATION_SVG_AND_METADATA,
+                SUBSTATION_SVG_AND_METADATA.expandPath(networkUuid, substationId, useName, centerLabel, diagonalLabel, topologicalColoring, substationLayout));
+    }
+
+    void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    public final class DiagramRequest {
+
+        private final String endpoint;
+
+        private final CompiledUriTemplate template;
+
+        private final String path;
+
+        private DiagramRequest(String endpoint, CompiledUriTemplate template, String path) {
+            this.endpoint = endpoint;
+            this.template = template;
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public Mono<byte[]> retrieve() {
+            URI uri = URI.create(baseUri + path);
+            return hedgedRequests.get(SERVICE, endpoint, () -> webClient.get()
+                    .uri(uri)
+                    .attribute(CompiledUriTemplate.URI_TEMPLATE_ATTRIBUTE, template.getTemplate())
+                    .retrieve()
+                    .bodyToMono(byte[].class));
+        }
+    }
+}
@@ -7,18 +7,23 @@
 package org.gridsuite.study.server;
 
 import com.powsybl.loadflow.LoadFlowParameters;
+import com.powsybl.loadflow.LoadFlowResult;
 import io.swagger.annotations.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Function;
 import java.util.logging.Level;
 import org.gridsuite.study.server.dto.*;
 import org.gridsuite.study.server.repository.StudyEntity;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.*;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 import reactor.core.scheduler.Schedulers;
 
 /**
@@ -33,8 +38,11 @@ public class StudyController {
 
     private final StudyService studyService;
 
-    public StudyController(StudyService studyService) {
+    private final CaseUploadService caseUploadService;
+
+    public StudyController(StudyService studyService, CaseUploadService caseUploadService) {
         this.studyService = studyService;
+        this.caseUploadService = caseUploadService;
     }
 
     @GetMapping(value = "/studies")
@@ -44,6 +52,35 @@ public class StudyController {
         return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getStudyList(userId));
     }
 
+    @GetMapping(value = "/studies", params = "limit")
+    @ApiOperation(value = "Get a page of the studies of a user, latest first")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The page of studies"),
+            @ApiResponse(code = 400, message = "The limit or the cursor is invalid")})
+    public ResponseEntity<Mono<StudyPage>> getStudyPage(@RequestHeader("userId") String userId,
+                                                        @ApiParam(value = "Maximum number of studies in the page") @RequestParam("limit") int limit,
+                                                        @ApiParam(value = "Cursor returned with the previous page") @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getStudyPage(userId, limit, cursor));
+    }
+
+    @GetMapping(value = "/studies/summaries")
+    @ApiOperation(value = "Get a summary of all studies for a user, latest first, without the loadflow results")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of study summaries")})
+    public ResponseEntity<Flux<StudySummaryInfos>> getStudySummaryList(@RequestHeader("userId") String userId) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getStudySummaries(userId));
+    }
+
+    @PostMapping(value = "/studies/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = {MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ApiOperation(value = "Get several studies, streamed as they are read")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The studies, without the unknown ones and the private ones of the other users"),
+            @ApiResponse(code = 400, message = "Too many or invalid study keys")})
+    public ResponseEntity<Flux<StudyInfos>> getStudies(@RequestHeader("userId") String headerUserId,
+                                                       @RequestBody List<StudyKeyInfos> studyKeys) {
+        return ResponseEntity.ok().body(studyService.getStudies(studyKeys, headerUserId));
+    }
+
     @GetMapping(value = "/study_creation_requests")
     @ApiOperation(value = "Get all study creation requests for a user")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of study creation requests")})
@@ -86,16 +123,82 @@ public class StudyController {
         return ResponseEntity.ok().body(studyService.assertStudyNotExists(studyName, userId).doOnSuccess(s -> createStudy.subscribe()));
     }
 
+    @PostMapping(value = "/case-uploads")
+    @ApiOperation(value = "start a resumable upload of a case file")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "The upload has been started")})
+    public ResponseEntity<Mono<CaseUploadInfos>> startCaseUpload(@RequestParam("fileName") String fileName,
+                                                                 @RequestHeader("userId") String userId) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(caseUploadService.startUpload(userId, fileName));
+    }
+
+    @GetMapping(value = "/case-uploads/{uploadId}")
+    @ApiOperation(value = "get the chunks already received for an upload, to resume it")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The upload"),
+            @ApiResponse(code = 404, message = "The upload doesn't exist")})
+    public ResponseEntity<Mono<CaseUploadInfos>> getCaseUpload(@PathVariable("uploadId") UUID uploadId,
+                                                               @RequestHeader("userId") String userId) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(caseUploadService.getUpload(uploadId, userId));
+    }
+
+    @PutMapping(value = "/case-uploads/{uploadId}/chunks/{chunkNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @ApiOperation(value = "upload a chunk of a case file, replacing it if it was already received")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The chunk has been received"),
+            @ApiResponse(code = 404, message = "The upload doesn't exist"),
+            @ApiResponse(code = 413, message = "The chunk, the number of chunks or the uploads of the user are too large")})
+    public ResponseEntity<Mono<Void>> uploadCaseChunk(@PathVariable("uploadId") UUID uploadId,
+                                                      @ApiParam(value = "Number of the chunk, starting from 0") @PathVariable("chunkNumber") int chunkNumber,
+                                                      @RequestBody Flux<DataBuffer> chunk,
+                                                      @RequestHeader("userId") String userId) {
+        return ResponseEntity.ok().body(caseUploadService.writeChunk(uploadId, userId, chunkNumber, chunk));
+    }
+
+    @DeleteMapping(value = "/case-uploads/{uploadId}")
+    @ApiOperation(value = "abort an upload")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The upload has been deleted"),
+            @ApiResponse(code = 404, message = "The upload doesn't exist")})
+    public ResponseEntity<Mono<Void>> deleteCaseUpload(@PathVariable("uploadId") UUID uploadId,
+                                                       @RequestHeader("userId") String userId) {
+        return ResponseEntity.ok().body(caseUploadService.deleteUpload(uploadId, userId));
+    }
+
+    @PostMapping(value = "/studies/{studyName}/case-uploads/{uploadId}")
+    @ApiOperation(value = "finalize an upload, create a study and import the uploaded case")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The study creation has been started"),
+            @ApiResponse(code = 400, message = "Some chunks of the upload are missing"),
+            @ApiResponse(code = 404, message = "The upload doesn't exist"),
+            @ApiResponse(code = 409, message = "The study already exist")})
+    public ResponseEntity<Mono<Void>> createStudyFromCaseUpload(@PathVariable("studyName") String studyName,
+                                                                @PathVariable("uploadId") UUID uploadId,
+                                                                @RequestParam("description") String description,
+                                                                @RequestParam("isPrivate") Boolean isPrivate,
+                                                                @RequestHeader("userId") String userId) {
+        return ResponseEntity.ok().body(studyService.assertStudyNotExists(studyName, userId)
+                .then(caseUploadService.finalizeUpload(uploadId, userId))
+                .doOnNext(upload -> studyService.createStudy(studyName, caseUploadService.readCase(upload), upload.getFileName(), description, userId, isPrivate)
+                        // an upload whose import failed is kept, for the import to be retried
+                        .doFinally(s -> (s == SignalType.ON_COMPLETE ? caseUploadService.deleteUpload(uploadId) : caseUploadService.reopenUpload(uploadId)).subscribe())
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .log(StudyService.ROOT_CATEGORY_REACTOR, Level.FINE)
+                        .subscribe())
+                .then());
+    }
+
     @GetMapping(value = "/{userId}/studies/{studyName}")
     @ApiOperation(value = "get a study")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "The study information"),
             @ApiResponse(code = 404, message = "The study doesn't exist")})
-    public ResponseEntity<Mono<StudyInfos>> getStudy(@PathVariable("studyName") String studyName,
+    public Mono<ResponseEntity<StudyInfos>> getStudy(@PathVariable("studyName") String studyName,
                                                       @RequestHeader("userId") String headerUserId,
-                                                      @PathVariable("userId") String userId) {
-        Mono<StudyInfos> studyMono = studyService.getCurrentUserStudy(studyName, userId, headerUserId);
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyMono.switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND))).then(studyMono));
+                                                      @PathVariable("userId") String userId,
+                                                      ServerWebExchange exchange) {
+        Mono<StudyEntity> studyMono = studyService.getCurrentUserStudy(studyName, userId, headerUserId)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+        return ifModified(exchange, studyMono, study -> studyService.getStudyInfos(study).map(infos -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(infos)));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/exists")
@@ -149,200 +252,258 @@ public class StudyController {
     @GetMapping(value = "/{userId}/studies/{studyName}/network/voltage-levels")
     @ApiOperation(value = "get the voltage levels for a given network")
     @ApiResponse(code = 200, message = "The voltage level list of the network")
-    public ResponseEntity<Mono<List<VoltageLevelAttributes>>> getNetworkVoltageLevels(
+    public Mono<ResponseEntity<List<VoltageLevelAttributes>>> getNetworkVoltageLevels(
             @PathVariable("studyName") String studyName,
-            @PathVariable("userId") String userId) {
+            @PathVariable("userId") String userId,
+            ServerWebExchange exchange) {
 
-        Mono<UUID> networkUuid = studyService.getNetworkUuid(studyName, userId);
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(networkUuid.flatMap(studyService::getNetworkVoltageLevels));
+        return ifModified(exchange, studyService.getExistingStudy(studyName, userId), study -> studyService.getNetworkVoltageLevels(study.getNetworkUuid())
+                .map(voltageLevels -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(voltageLevels)));
+    }
+
+    @GetMapping(value = "/{userId}/studies/{studyName}/network/substations")
+    @ApiOperation(value = "get the substations for a given network")
+    @ApiResponse(code = 200, message = "The substation list of the network")
+    public Mono<ResponseEntity<List<SubstationAttributes>>> getNetworkSubstations(
+            @PathVariable("studyName") String studyName,
+            @PathVariable("userId") String userId,
+            ServerWebExchange exchange) {
+
+        return ifModified(exchange, studyService.getExistingStudy(studyName, userId), study -> studyService.getNetworkSubstations(study.getNetworkUuid())
+                .map(substations -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(substations)));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/geo-data/lines")
     @ApiOperation(value = "Get Network lines graphics", produces = "application/json")
-    @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of lines graphics")})
-    public ResponseEntity<Mono<String>> getLinesGraphics(
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The list of lines graphics"),
+            @ApiResponse(code = 304, message = "The list of lines graphics has not changed")})
+    public Mono<ResponseEntity<String>> getLinesGraphics(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId).flatMap(studyService::getLinesGraphics));
+        return studyService.getNetworkUuid(studyName, userId).flatMap(studyService::getLinesGraphics);
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/geo-data/substations")
     @ApiOperation(value = "Get Network substations graphics", produces = "application/json")
-    @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of substations graphics")})
-    public ResponseEntity<Mono<String>> getSubstationsGraphic(
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The list of substations graphics"),
+            @ApiResponse(code = 304, message = "The list of substations graphics has not changed")})
+    public Mono<ResponseEntity<String>> getSubstationsGraphic(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId).flatMap(studyService::getSubstationsGraphics));
+        return studyService.getNetworkUuid(studyName, userId).flatMap(studyService::getSubstationsGraphics);
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/lines")
     @ApiOperation(value = "Get Network lines description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of lines data")})
-    public ResponseEntity<Mono<String>> getLinesMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getLinesMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getLinesMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getLinesMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/substations")
     @ApiOperation(value = "Get Network substations description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of substations data")})
-    public ResponseEntity<Mono<String>> getSubstationsMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getSubstationsMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getSubstationsMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getSubstationsMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/2-windings-transformers")
     @ApiOperation(value = "Get Network 2 windings transformers description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of 2 windings transformers data")})
-    public ResponseEntity<Mono<String>> getTwoWindingsTransformersMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getTwoWindingsTransformersMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getTwoWindingsTransformersMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getTwoWindingsTransformersMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/3-windings-transformers")
     @ApiOperation(value = "Get Network 3 windings transformers description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of 3 windings transformers data")})
-    public ResponseEntity<Mono<String>> getThreeWindingsTransformersMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getThreeWindingsTransformersMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getThreeWindingsTransformersMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getThreeWindingsTransformersMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/generators")
     @ApiOperation(value = "Get Network generators description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of generators data")})
-    public ResponseEntity<Mono<String>> getGeneratorsMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getGeneratorsMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getGeneratorsMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getGeneratorsMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/batteries")
     @ApiOperation(value = "Get Network batteries description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of batteries data")})
-    public ResponseEntity<Mono<String>> getBatteriesMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getBatteriesMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getBatteriesMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getBatteriesMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/dangling-lines")
     @ApiOperation(value = "Get Network dangling lines description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of dangling lines data")})
-    public ResponseEntity<Mono<String>> getDanglingLinesMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getDanglingLinesMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getDanglingLinesMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getDanglingLinesMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/hvdc-lines")
     @ApiOperation(value = "Get Network hvdc lines description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of hvdc lines data")})
-    public ResponseEntity<Mono<String>> getHvdcLinesMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getHvdcLinesMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getHvdcLinesMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getHvdcLinesMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/lcc-converter-stations")
     @ApiOperation(value = "Get Network lcc converter stations description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of lcc converter stations data")})
-    public ResponseEntity<Mono<String>> getLccConverterStationsMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getLccConverterStationsMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getLccConverterStationsMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getLccConverterStationsMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/vsc-converter-stations")
     @ApiOperation(value = "Get Network vsc converter stations description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of vsc converter stations data")})
-    public ResponseEntity<Mono<String>> getVscConverterStationsMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getVscConverterStationsMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getVscConverterStationsMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getVscConverterStationsMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/loads")
     @ApiOperation(value = "Get Network loads description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of loads data")})
-    public ResponseEntity<Mono<String>> getLoadsMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getLoadsMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getLoadsMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getLoadsMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/shunt-compensators")
     @ApiOperation(value = "Get Network shunt compensators description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of shunt compensators data")})
-    public ResponseEntity<Mono<String>> getShuntCompensatorsMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getShuntCompensatorsMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getShuntCompensatorsMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getShuntCompensatorsMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/static-var-compensators")
     @ApiOperation(value = "Get Network static var compensators description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of static var compensators data")})
-    public ResponseEntity<Mono<String>> getStaticVarCompensatorsMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getStaticVarCompensatorsMapData(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getStaticVarCompensatorsMapData(uuid, substationsIds)));
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getStaticVarCompensatorsMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network-map/all")
     @ApiOperation(value = "Get Network equipments description", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The list of equipments data")})
-    public ResponseEntity<Mono<String>> getAllMapData(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllMapData(
+            @PathVariable("studyName") String studyName,
+            @PathVariable("userId") String userId,
+            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerWebExchange exchange) {
+
+        return ifModifiedByEncoding(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getAllMapData(study.getNetworkUuid(), substationsIds, acceptEncoding));
+    }
+
+    @GetMapping(value = "/{userId}/studies/{studyName}/network-map/delta")
+    @ApiOperation(value = "Get the equipments description changed since a version of the study", produces = "application/json", response = NetworkMapDelta.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "The changed substations with the data of their equipments")})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getNetworkMapDelta(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
-            @ApiParam(value = "Substations id") @RequestParam(name = "substationId", required = false) List<String> substationsIds) {
+            @ApiParam(value = "Version of the study last read by the client") @RequestParam("version") long version,
+            ServerWebExchange exchange) {
 
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getNetworkUuid(studyName, userId)
-                .flatMap(uuid -> studyService.getAllMapData(uuid, substationsIds)));
+        return ifModified(exchange, studyService.getExistingStudy(studyName, userId),
+            study -> studyService.getNetworkMapDelta(study, version));
     }
 
     @PutMapping(value = "/{userId}/studies/{studyName}/network-modification/switches/{switchId}")
@@ -421,7 +582,7 @@ public class StudyController {
     @GetMapping(value = "/{userId}/studies/{studyName}/export-network/{format}")
     @ApiOperation(value = "export the study's network in the given format", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The network in the given format")})
-    public Mono<ResponseEntity<byte[]>> exportNetwork(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportNetwork(
             @PathVariable("studyName") String studyName,
             @PathVariable("userId") String userId,
             @PathVariable("format") String format) {
@@ -480,13 +641,26 @@ public class StudyController {
         return ResponseEntity.ok().body(studyService.setLoadFlowParameters(studyName, userId, lfParameter));
     }
 
+    @GetMapping(value = "/{userId}/studies/{studyName}/loadflow/result")
+    @ApiOperation(value = "Get the loadflow result of a study", produces = "application/json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The loadflow result, empty if the loadflow has not been run"),
+            @ApiResponse(code = 404, message = "The study doesn't exist")})
+    public ResponseEntity<Mono<LoadFlowResult>> getLoadflowResult(
+            @PathVariable("studyName") String studyName,
+            @PathVariable("userId") String userId) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(studyService.getLoadFlowResult(studyName, userId));
+    }
+
     @GetMapping(value = "/{userId}/studies/{studyName}/loadflow/parameters")
     @ApiOperation(value = "Get loadflow parameters on study", produces = "application/json")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "The loadflow parameters")})
-    public ResponseEntity<Mono<LoadFlowParameters>> getLoadflowParameters(
+    public Mono<ResponseEntity<LoadFlowParameters>> getLoadflowParameters(
             @PathVariable("studyName") String studyName,
-            @PathVariable("userId") String userId) {
-        return ResponseEntity.ok().body(studyService.getLoadFlowParameters(studyName, userId));
+            @PathVariable("userId") String userId,
+            ServerWebExchange exchange) {
+        return ifModified(exchange, studyService.getStudy(studyName, userId),
+            study -> Mono.just(ResponseEntity.ok().body(StudyService.fromEntity(study.getLoadFlowParameters()))));
     }
 
     @GetMapping(value = "/{userId}/studies/{studyName}/network/substations/{substationId}/svg")
@@ -533,4 +707,43 @@ public class StudyController {
                 .map(result -> ResponseEntity.ok().body(result))
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
+
+    /**
+     * Same as {@link #ifModified}, for the responses passed through still encoded if the client accepts the encoding:
+     * they vary with the Accept-Encoding header of the request, and so do their 304.
+     */
+    private <T> Mono<ResponseEntity<T>> ifModifiedByEncoding(ServerWebExchange exchange, Mono<StudyEntity> studyMono,
+                                                             Function<StudyEntity, Mono<ResponseEntity<T>>> response) {
+        exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return ifModified(exchange, studyMono, response);
+    }
+
+    /**
+     * Answers with a 304, without building the response, if the client copy of the response is still valid.
+     *
+     * @param response the response, which must only depend on the request and on the version of the study
+     */
+    private <T> Mono<ResponseEntity<T>> ifModified(ServerWebExchange exchange, Mono<StudyEntity> studyMono,
+                                                   Function<StudyEntity, Mono<ResponseEntity<T>>> response) {
+        return studyMono.flatMap(study -> {
+            String eTag = StudyService.eTag(study);
+            if (exchange.checkNotModified(eTag)) {
+                return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate()).build());
+            }
+            return response.apply(study).map(entity -> {
+                // stale responses may not match the version of the study, so they don't get its entity tag
+                if (BackingServiceClients.isNoStore(entity)) {
+                    // the exchange has already set the entity tag while checking the request
+                    exchange.getResponse().getHeaders().remove(HttpHeaders.ETAG);
+                    return entity;
+                }
+                return ResponseEntity.status(entity.getStatusCode())
+                        .headers(entity.getHeaders())
+                        .eTag(eTag)
+                        // the studies are private to their users, the clients revalidate their copy at each use
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(entity.getBody());
+            });
+        });
+    }
 }
@@ -22,7 +22,13 @@ class StudyException  extends RuntimeException {
         SECURITY_ANALYSIS_RUNNING,
         SECURITY_ANALYSIS_NOT_FOUND,
         NOT_ALLOWED,
-        STUDY_CREATION_FAILED
+        STUDY_CREATION_FAILED,
+        INVALID_PAGE_REQUEST,
+        INVALID_BATCH_REQUEST,
+        UPLOAD_NOT_FOUND,
+        UPLOAD_INCOMPLETE,
+        UPLOAD_TOO_LARGE,
+        BACKING_SERVICE_UNAVAILABLE
     }
 
     private final Type type;
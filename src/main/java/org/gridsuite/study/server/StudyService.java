@@ -6,14 +6,14 @@
  */
 package org.gridsuite.study.server;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.powsybl.contingency.Contingency;
 import com.powsybl.loadflow.LoadFlowResult;
 import com.powsybl.loadflow.LoadFlowParameters;
 import com.powsybl.loadflow.LoadFlowResultImpl;
-import com.powsybl.network.store.model.TopLevelDocument;
+import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
@@ -37,20 +37,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.ClientResponse;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.EmitterProcessor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -70,6 +70,12 @@ public class StudyService {
 
     public static final String ROOT_CATEGORY_REACTOR = "reactor.";
 
+    // buffers of the uploaded case read ahead of the upload to the case server
+    private static final int CASE_UPLOAD_PREFETCH = 8;
+
+    // the largest buffer of the uploaded case sent to the case server, so that the buffers read ahead bound its bytes
+    private static final int CASE_UPLOAD_BUFFER_SIZE = 64 * 1024;
+
     private static final String CATEGORY_BROKER_INPUT = StudyService.class.getName() + ".input-broker-messages";
     private static final String CATEGORY_BROKER_OUTPUT = StudyService.class.getName() + ".output-broker-messages";
 
@@ -84,6 +90,8 @@ public class StudyService {
     static final String HEADER_ERROR = "error";
     static final String UPDATE_TYPE_STUDY = "study";
     static final String HEADER_UPDATE_TYPE_SUBSTATIONS_IDS = "substationsIds";
+    static final String HEADER_NETWORK_UUID = "networkUuid";
+    static final String HEADER_TOPOLOGY_CHANGED = "topologyChanged";
     static final String QUERY_PARAM_SUBSTATION_ID = "substationId";
 
     @Data
@@ -96,24 +104,45 @@ public class StudyService {
         private String userId;
     }
 
-    private WebClient webClient;
-
-    private String caseServerBaseUri;
-    private String singleLineDiagramServerBaseUri;
-    private String networkConversionServerBaseUri;
-    private String geoDataServerBaseUri;
-    private String networkMapServerBaseUri;
-    private String networkModificationServerBaseUri;
-    private String loadFlowServerBaseUri;
-    private String networkStoreServerBaseUri;
-    private String securityAnalysisServerBaseUri;
-    private String actionsServerBaseUri;
-
     private StudyRepository studyRepository;
     private StudyCreationRequestRepository studyCreationRequestRepository;
 
     private ObjectMapper objectMapper;
 
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private NetworkMapCache networkMapCache;
+
+    private SvgCache svgCache;
+
+    private GeoDataCache geoDataCache;
+
+    private NetworkTopologyCache topologyCache;
+
+    private CaseClient caseClient;
+
+    private NetworkConversionClient networkConversionClient;
+
+    private GeoDataClient geoDataClient;
+
+    private NetworkModificationClient networkModificationClient;
+
+    private LoadFlowClient loadFlowClient;
+
+    private NetworkStoreServerClient networkStoreServerClient;
+
+    private SecurityAnalysisClient securityAnalysisClient;
+
+    private ActionsClient actionsClient;
+
+    private NetworkMapClient networkMapClient;
+
+    private SingleLineDiagramClient singleLineDiagramClient;
+
+    private int maxStudyPageSize;
+    private int maxStudyBatchSize;
+    private int studyBatchConcurrency;
+
     private EmitterProcessor<Message<String>> studyUpdatePublisher = EmitterProcessor.create();
 
     @Bean
@@ -152,47 +181,98 @@ public class StudyService {
                 .subscribe();
     }
 
+    @Bean
+    public Consumer<Flux<Message<String>>> consumeStudyUpdate() {
+        // studies and networks changed by any node, including this one, are evicted from the local caches
+        return f -> f.log(CATEGORY_BROKER_INPUT, Level.FINE)
+                .doOnNext(this::evictChangedData)
+                .doOnError(throwable -> LOGGER.error(throwable.toString(), throwable))
+                .subscribe();
+    }
+
+    private void evictChangedData(Message<String> message) {
+        // a malformed message must not end the consumption, the node would never evict its caches again
+        try {
+            String studyName = message.getHeaders().get(HEADER_STUDY_NAME, String.class);
+            if (studyName != null) {
+                studyRepository.evictStudies(studyName);
+            }
+            String networkUuid = message.getHeaders().get(HEADER_NETWORK_UUID, String.class);
+            if (networkUuid != null) {
+                evictNetworkData(UUID.fromString(networkUuid), message.getHeaders());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot evict the data changed by the study update {}", message.getHeaders(), e);
+        }
+    }
+
     @Autowired
     public StudyService(
-            @Value("${network-store-server.base-uri:http://network-store-server/}") String networkStoreServerBaseUri,
-            @Value("${backing-services.case.base-uri:http://case-server/}") String caseServerBaseUri,
-            @Value("${backing-services.single-line-diagram.base-uri:http://single-line-diagram-server/}") String singleLineDiagramServerBaseUri,
-            @Value("${backing-services.network-conversion.base-uri:http://network-conversion-server/}") String networkConversionServerBaseUri,
-            @Value("${backing-services.geo-data.base-uri:http://geo-data-store-server/}") String geoDataServerBaseUri,
-            @Value("${backing-services.network-map.base-uri:http://network-map-store-server/}") String networkMapServerBaseUri,
-            @Value("${backing-services.network-modification.base-uri:http://network-modification-server/}") String networkModificationServerBaseUri,
-            @Value("${backing-services.loadflow.base-uri:http://loadflow-server/}") String loadFlowServerBaseUri,
-            @Value("${backing-services.security-analysis-server.base-uri:http://security-analysis-server/}") String securityAnalysisServerBaseUri,
-            @Value("${backing-services.actions-server.base-uri:http://actions-server/}") String actionsServerBaseUri,
+            @Value("${study.listing.max-page-size:200}") int maxStudyPageSize,
+            @Value("${study.batch.max-size:500}") int maxStudyBatchSize,
+            @Value("${study.batch.concurrency:8}") int studyBatchConcurrency,
             StudyRepository studyRepository,
             StudyCreationRequestRepository studyCreationRequestRepository,
-            WebClient.Builder webClientBuilder,
-            ObjectMapper objectMapper) {
-        this.caseServerBaseUri = caseServerBaseUri;
-        this.singleLineDiagramServerBaseUri = singleLineDiagramServerBaseUri;
-        this.networkConversionServerBaseUri = networkConversionServerBaseUri;
-        this.geoDataServerBaseUri = geoDataServerBaseUri;
-        this.networkMapServerBaseUri = networkMapServerBaseUri;
-        this.networkModificationServerBaseUri = networkModificationServerBaseUri;
-        this.loadFlowServerBaseUri = loadFlowServerBaseUri;
-        this.networkStoreServerBaseUri = networkStoreServerBaseUri;
-        this.securityAnalysisServerBaseUri = securityAnalysisServerBaseUri;
-        this.actionsServerBaseUri = actionsServerBaseUri;
+            ObjectMapper objectMapper,
+            NetworkMapCache networkMapCache,
+            SvgCache svgCache,
+            GeoDataCache geoDataCache,
+            NetworkTopologyCache topologyCache,
+            CaseClient caseClient,
+            NetworkConversionClient networkConversionClient,
+            GeoDataClient geoDataClient,
+            NetworkModificationClient networkModificationClient,
+            LoadFlowClient loadFlowClient,
+            NetworkStoreServerClient networkStoreServerClient,
+            SecurityAnalysisClient securityAnalysisClient,
+            ActionsClient actionsClient,
+            NetworkMapClient networkMapClient,
+            SingleLineDiagramClient singleLineDiagramClient) {
+        this.maxStudyPageSize = maxStudyPageSize;
+        this.maxStudyBatchSize = maxStudyBatchSize;
+        this.studyBatchConcurrency = studyBatchConcurrency;
 
         this.studyRepository = studyRepository;
         this.studyCreationRequestRepository = studyCreationRequestRepository;
-        this.webClient =  webClientBuilder.build();
         this.objectMapper = objectMapper;
-    }
-
-    private static StudyInfos toInfos(StudyEntity entity) {
+        this.networkMapCache = networkMapCache;
+        this.svgCache = svgCache;
+        this.geoDataCache = geoDataCache;
+        this.topologyCache = topologyCache;
+        this.caseClient = caseClient;
+        this.networkConversionClient = networkConversionClient;
+        this.geoDataClient = geoDataClient;
+        this.networkModificationClient = networkModificationClient;
+        this.loadFlowClient = loadFlowClient;
+        this.networkStoreServerClient = networkStoreServerClient;
+        this.securityAnalysisClient = securityAnalysisClient;
+        this.actionsClient = actionsClient;
+        this.networkMapClient = networkMapClient;
+        this.singleLineDiagramClient = singleLineDiagramClient;
+    }
+
+    static StudyInfos toInfos(StudyEntity entity) {
+        return toInfos(entity, null);
+    }
+
+    private static StudyInfos toInfos(StudyEntity entity, LoadFlowResult loadFlowResult) {
         return StudyInfos.builder().studyName(entity.getStudyName())
                 .creationDate(ZonedDateTime.ofInstant(entity.getDate().toInstant(ZoneOffset.UTC), ZoneId.of("UTC")))
                 .userId(entity.getUserId())
                 .description(entity.getDescription()).caseFormat(entity.getCaseFormat())
                 .loadFlowStatus(entity.getLoadFlowStatus())
-                .loadFlowResult(fromEntity(entity.getLoadFlowResult()))
+                .loadFlowResult(loadFlowResult)
                 .studyPrivate(entity.isPrivate())
+                .version(entity.getVersion())
+                .build();
+    }
+
+    private static StudySummaryInfos toSummaryInfos(StudySummaryEntity entity) {
+        return StudySummaryInfos.builder().studyName(entity.getStudyName())
+                .creationDate(ZonedDateTime.ofInstant(entity.getDate().toInstant(ZoneOffset.UTC), ZoneId.of("UTC")))
+                .userId(entity.getUserId())
+                .studyPrivate(entity.isPrivate())
+                .loadFlowStatus(entity.getLoadFlowStatus())
                 .build();
     }
 
@@ -208,6 +288,39 @@ public class StudyService {
                 .sort(Comparator.comparing(StudyInfos::getCreationDate).reversed());
     }
 
+    Mono<StudyPage> getStudyPage(String userId, int limit, String cursor) {
+        if (limit <= 0 || limit > maxStudyPageSize) {
+            return Mono.error(new StudyException(INVALID_PAGE_REQUEST));
+        }
+        StudyListCursor after;
+        try {
+            after = cursor != null ? StudyListCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new StudyException(INVALID_PAGE_REQUEST));
+        }
+        return studyRepository.getStudies(userId, after, limit)
+                .collectList()
+                .map(studies -> new StudyPage(studies.stream().map(StudyService::toInfos).collect(Collectors.toList()),
+                        studies.size() == limit ? StudyListCursor.of(studies.get(limit - 1)).encode() : null));
+    }
+
+    Flux<StudyInfos> getStudies(List<StudyKeyInfos> studyKeys, String headerUserId) {
+        if (studyKeys.size() > maxStudyBatchSize
+                || studyKeys.stream().anyMatch(key -> key == null || key.getUserId() == null || key.getStudyName() == null)) {
+            return Flux.error(new StudyException(INVALID_BATCH_REQUEST));
+        }
+        Map<String, Set<String>> studyNamesByUser = studyKeys.stream()
+                .collect(Collectors.groupingBy(StudyKeyInfos::getUserId, Collectors.mapping(StudyKeyInfos::getStudyName, Collectors.toSet())));
+        return studyRepository.findStudies(studyNamesByUser, studyBatchConcurrency)
+                // the private studies of the other users are left out, as the unknown studies
+                .filter(study -> !study.isPrivate() || study.getUserId().equals(headerUserId))
+                .map(StudyService::toInfos);
+    }
+
+    Flux<StudySummaryInfos> getStudySummaries(String userId) {
+        return studyRepository.getStudySummaries(userId).map(StudyService::toSummaryInfos);
+    }
+
     Flux<BasicStudyInfos> getStudyCreationRequests(String userId) {
         return studyCreationRequestRepository.getStudyCreationRequests(userId).map(StudyService::toBasicInfos)
                 .sort(Comparator.comparing(BasicStudyInfos::getCreationDate).reversed());
@@ -219,7 +332,7 @@ public class StudyService {
                           .flatMap(t -> {
                               LoadFlowParameters loadFlowParameters = LoadFlowParameters.load();
                               return insertStudy(studyName, userId, isPrivate, t.getT1().getNetworkUuid(), t.getT1().getNetworkId(),
-                                                 description, t.getT2(), caseUuid, false, LoadFlowStatus.NOT_DONE, null,  toEntity(loadFlowParameters), null);
+                                                 description, t.getT2(), caseUuid, false, LoadFlowStatus.NOT_DONE, toEntity(loadFlowParameters), null);
                           })
                 )
                 .doOnError(throwable -> LOGGER.error(throwable.toString(), throwable))
@@ -227,20 +340,29 @@ public class StudyService {
     }
 
     public Mono<StudyEntity> createStudy(String studyName, Mono<FilePart> caseFile, String description, String userId, Boolean isPrivate) {
+        return createStudyFromImportedCase(studyName, importCase(caseFile, studyName), description, userId, isPrivate);
+    }
+
+    public Mono<StudyEntity> createStudy(String studyName, Flux<DataBuffer> caseContent, String caseFileName, String description, String userId, Boolean isPrivate) {
+        return createStudyFromImportedCase(studyName, importCase(caseContent, caseFileName, MediaType.APPLICATION_OCTET_STREAM, studyName),
+                                           description, userId, isPrivate);
+    }
+
+    private Mono<StudyEntity> createStudyFromImportedCase(String studyName, Mono<UUID> importedCase, String description, String userId, Boolean isPrivate) {
         return insertStudyCreationRequest(studyName, userId, isPrivate)
-                .then(importCase(caseFile, studyName).flatMap(uuid ->
+                .then(importedCase.flatMap(uuid ->
                      Mono.zip(persistentStore(uuid, studyName), getCaseFormat(uuid))
                          .flatMap(t -> {
                              LoadFlowParameters loadFlowParameters = LoadFlowParameters.load();
                              return insertStudy(studyName, userId, isPrivate, t.getT1().getNetworkUuid(), t.getT1().getNetworkId(),
-                                                description, t.getT2(), uuid, true, LoadFlowStatus.NOT_DONE, null, toEntity(loadFlowParameters), null);
+                                                description, t.getT2(), uuid, true, LoadFlowStatus.NOT_DONE, toEntity(loadFlowParameters), null);
                          })
                 ))
                 .doOnError(throwable -> LOGGER.error(throwable.toString(), throwable))
                 .doFinally(s -> deleteStudyIfNotCreationInProgress(studyName, userId).subscribe()); // delete the study if the creation has been canceled
     }
 
-    Mono<StudyInfos> getCurrentUserStudy(String studyName, String userId, String headerUserId) {
+    Mono<StudyEntity> getCurrentUserStudy(String studyName, String userId, String headerUserId) {
         Mono<StudyEntity> studyMono = studyRepository.findStudy(userId, studyName);
         return studyMono.flatMap(study -> {
             if (study.isPrivate() && !userId.equals(headerUserId)) {
@@ -248,13 +370,32 @@ public class StudyService {
             } else {
                 return Mono.just(study);
             }
-        }).map(StudyService::toInfos);
+        });
+    }
+
+    Mono<StudyInfos> getStudyInfos(StudyEntity study) {
+        return studyRepository.getLoadFlowResult(study.getUuid())
+                .map(loadFlowResult -> toInfos(study, fromEntity(loadFlowResult)))
+                .switchIfEmpty(Mono.fromSupplier(() -> toInfos(study)));
     }
 
     Mono<StudyEntity> getStudy(String studyName, String userId) {
         return studyRepository.findStudy(userId, studyName);
     }
 
+    Mono<StudyEntity> getExistingStudy(String studyName, String userId) {
+        return getStudy(studyName, userId).switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND)));
+    }
+
+    /**
+     * The validator of the responses which only depend on the study and its network: the version of the study
+     * advances with every change of the study, including the modifications of its network and the load flow runs.
+     * It is weak, as the responses of the backing services may be encoded differently.
+     */
+    static String eTag(StudyEntity study) {
+        return "W/\"" + study.getUuid() + "-" + study.getVersion() + "\"";
+    }
+
     private Mono<BasicStudyEntity> getStudyCreationRequest(String studyName, String userId) {
         return studyCreationRequestRepository.findStudy(userId, studyName);
     }
@@ -269,9 +410,10 @@ public class StudyService {
 
     private Mono<StudyEntity> insertStudy(String studyName, String userId, boolean isPrivate, UUID networkUuid, String networkId,
                                          String description, String caseFormat, UUID caseUuid, boolean casePrivate, LoadFlowStatus loadFlowStatus,
-                                         LoadFlowResultEntity loadFlowResult, LoadFlowParametersEntity loadFlowParameters, UUID securityAnalysisUuid) {
-        return studyRepository.insertStudy(studyName, userId, isPrivate, networkUuid, networkId, description, caseFormat, caseUuid, casePrivate, loadFlowStatus, loadFlowResult,
+                                         LoadFlowParametersEntity loadFlowParameters, UUID securityAnalysisUuid) {
+        return studyRepository.insertStudy(studyName, userId, isPrivate, networkUuid, networkId, description, caseFormat, caseUuid, casePrivate, loadFlowStatus,
                                            loadFlowParameters, securityAnalysisUuid)
+                .switchIfEmpty(Mono.error(new StudyException(STUDY_ALREADY_EXISTS)))
                 .doOnSuccess(s -> emitStudyChanged(studyName, StudyService.UPDATE_TYPE_STUDIES));
     }
 
@@ -292,14 +434,7 @@ public class StudyService {
     }
 
     private Mono<String> getCaseFormat(UUID caseUuid) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + CASE_API_VERSION + "/cases/{caseUuid}/format")
-                .buildAndExpand(caseUuid)
-                .toUriString();
-
-        return webClient.get()
-                .uri(caseServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(String.class)
+        return caseClient.getFormat(caseUuid)
                 .publishOn(Schedulers.boundedElastic())
                 .log(ROOT_CATEGORY_REACTOR, Level.FINE);
     }
@@ -323,324 +458,361 @@ public class StudyService {
     }
 
     Mono<UUID> importCase(Mono<FilePart> multipartFile, String studyName) {
+        return multipartFile.flatMap(file -> importCase(file.content(), file.filename(),
+                Optional.ofNullable(file.headers().getContentType()).orElse(MediaType.APPLICATION_OCTET_STREAM), studyName));
+    }
 
-        return multipartFile.flatMap(file -> {
-            MultipartBodyBuilder multipartBodyBuilder = new MultipartBodyBuilder();
-            multipartBodyBuilder.part("file", file);
-
-            return webClient.post()
-                    .uri(caseServerBaseUri + "/" + CASE_API_VERSION + "/cases/private")
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.MULTIPART_FORM_DATA.toString())
-                    .body(BodyInserters.fromMultipartData(multipartBodyBuilder.build()))
-                    .retrieve()
-                    .onStatus(httpStatus -> httpStatus != HttpStatus.OK, clientResponse ->
-                            handleStudyCreationError(studyName, clientResponse)
-                    )
-                    .bodyToMono(UUID.class)
-                    .publishOn(Schedulers.boundedElastic())
-                    .log(ROOT_CATEGORY_REACTOR, Level.FINE);
-        });
+    private Mono<UUID> importCase(Flux<DataBuffer> caseContent, String caseFileName, MediaType contentType, String studyName) {
+        // the case is streamed to the case server, with at most a few buffers of a bounded size in flight
+        MultipartBodyBuilder multipartBodyBuilder = new MultipartBodyBuilder();
+        multipartBodyBuilder.asyncPart("file", split(caseContent, CASE_UPLOAD_BUFFER_SIZE).limitRate(CASE_UPLOAD_PREFETCH), DataBuffer.class)
+                .filename(caseFileName)
+                .contentType(contentType);
+
+        return caseClient.importPrivateCase(multipartBodyBuilder.build(), clientResponse -> handleStudyCreationError(studyName, clientResponse))
+                .publishOn(Schedulers.boundedElastic())
+                .log(ROOT_CATEGORY_REACTOR, Level.FINE);
+    }
+
+    /**
+     * Splits the buffers larger than the given size, the parts of an uploaded case kept in memory being read as a
+     * single buffer. The buffers are read one at a time, so that the buffers requested downstream bound the bytes read.
+     */
+    private static Flux<DataBuffer> split(Flux<DataBuffer> content, int maxBufferSize) {
+        return content.concatMapIterable(buffer -> {
+            int length = buffer.readableByteCount();
+            if (length <= maxBufferSize) {
+                return List.of(buffer);
+            }
+            List<DataBuffer> slices = new ArrayList<>(length / maxBufferSize + 1);
+            for (int offset = 0; offset < length; offset += maxBufferSize) {
+                slices.add(buffer.retainedSlice(buffer.readPosition() + offset, Math.min(maxBufferSize, length - offset)));
+            }
+            DataBufferUtils.release(buffer);
+            return slices;
+        }, 1)
+                .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
     }
 
     Mono<byte[]> getVoltageLevelSvg(UUID networkUuid, String voltageLevelId, boolean useName, boolean centerLabel, boolean diagonalLabel,
                                     boolean topologicalColoring) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + SINGLE_LINE_DIAGRAM_API_VERSION + "/svg/{networkUuid}/{voltageLevelId}")
-                .queryParam("useName", useName)
-                .queryParam("centerLabel", centerLabel)
-                .queryParam("diagonalLabel", diagonalLabel)
-                .queryParam("topologicalColoring", topologicalColoring)
-                .buildAndExpand(networkUuid, voltageLevelId)
-                .toUriString();
+        SingleLineDiagramClient.DiagramRequest request = singleLineDiagramClient.voltageLevelSvg(networkUuid, voltageLevelId, useName,
+                centerLabel, diagonalLabel, topologicalColoring);
 
-        return webClient.get()
-                .uri(singleLineDiagramServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(byte[].class);
+        return svgCache.get(networkUuid, request.getPath(), getVoltageLevelSubstationId(networkUuid, voltageLevelId), request::retrieve);
     }
 
     Mono<String> getVoltageLevelSvgAndMetadata(UUID networkUuid, String voltageLevelId, boolean useName, boolean centerLabel, boolean diagonalLabel,
                                                boolean topologicalColoring) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + SINGLE_LINE_DIAGRAM_API_VERSION + "/svg-and-metadata/{networkUuid}/{voltageLevelId}")
-                .queryParam("useName", useName)
-                .queryParam("centerLabel", centerLabel)
-                .queryParam("diagonalLabel", diagonalLabel)
-                .queryParam("topologicalColoring", topologicalColoring)
-                .buildAndExpand(networkUuid, voltageLevelId)
-                .toUriString();
+        SingleLineDiagramClient.DiagramRequest request = singleLineDiagramClient.voltageLevelSvgAndMetadata(networkUuid, voltageLevelId, useName,
+                centerLabel, diagonalLabel, topologicalColoring);
+
+        return svgCache.get(networkUuid, request.getPath(), getVoltageLevelSubstationId(networkUuid, voltageLevelId), request::retrieve)
+                .map(body -> new String(body, StandardCharsets.UTF_8));
+    }
 
-        return webClient.get()
-                .uri(singleLineDiagramServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(String.class);
+    private Mono<String> getVoltageLevelSubstationId(UUID networkUuid, String voltageLevelId) {
+        return topologyCache.getVoltageLevelSubstationId(networkUuid, voltageLevelId,
+            () -> networkStoreServerClient.getVoltageLevels(networkUuid, VoltageLevelAttributes::new))
+                // the diagram is still cached, with an unknown substation
+                .onErrorResume(e -> Mono.empty());
     }
 
     private Mono<NetworkInfos> persistentStore(UUID caseUuid, String studyName) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + NETWORK_CONVERSION_API_VERSION + "/networks")
-                .queryParam(CASE_UUID, caseUuid)
-                .buildAndExpand()
-                .toUriString();
-
-        return webClient.post()
-                .uri(networkConversionServerBaseUri + path)
-                .retrieve()
-                .onStatus(httpStatus -> httpStatus != HttpStatus.OK, clientResponse ->
-                        handleStudyCreationError(studyName, clientResponse)
-                )
-                .bodyToMono(NetworkInfos.class)
+        return networkConversionClient.importCase(caseUuid, clientResponse -> handleStudyCreationError(studyName, clientResponse))
                 .publishOn(Schedulers.boundedElastic())
                 .log(ROOT_CATEGORY_REACTOR, Level.FINE);
     }
 
-    // This function call directly the network store server without using the dedicated client because it's a blocking client.
-    // If we'll have new needs to call the network store server, then we'll migrate the network store client to be nonblocking
     Mono<List<VoltageLevelAttributes>> getNetworkVoltageLevels(UUID networkUuid) {
-        String path = UriComponentsBuilder.fromPath("v1/networks/{networkId}/voltage-levels")
-                .buildAndExpand(networkUuid)
-                .toUriString();
-
-        Mono<TopLevelDocument<com.powsybl.network.store.model.VoltageLevelAttributes>> mono = webClient.get()
-                .uri(networkStoreServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<TopLevelDocument<com.powsybl.network.store.model.VoltageLevelAttributes>>() { });
-
-        return mono.map(t -> t.getData().stream().map(e -> new VoltageLevelAttributes(e.getId(), e.getAttributes().getName(), e.getAttributes().getSubstationId())).collect(Collectors.toList()));
+        return topologyCache.getVoltageLevels(networkUuid, () -> networkStoreServerClient.getVoltageLevels(networkUuid, VoltageLevelAttributes::new));
     }
 
-    Mono<String> getLinesGraphics(UUID networkUuid) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + GEO_DATA_API_VERSION + "/lines")
-                .queryParam(NETWORK_UUID, networkUuid)
-                .buildAndExpand()
-                .toUriString();
-
-        return webClient.get()
-                .uri(geoDataServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(String.class);
+    Mono<List<SubstationAttributes>> getNetworkSubstations(UUID networkUuid) {
+        return topologyCache.getSubstations(networkUuid, () -> networkStoreServerClient.getSubstations(networkUuid,
+            (id, name, substationId) -> new SubstationAttributes(id, name)));
     }
 
-    Mono<String> getSubstationsGraphics(UUID networkUuid) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + GEO_DATA_API_VERSION + "/substations")
-                .queryParam(NETWORK_UUID, networkUuid)
-                .buildAndExpand()
-                .toUriString();
+    Mono<ResponseEntity<String>> getLinesGraphics(UUID networkUuid) {
+        return geoDataCache.get(networkUuid, "lines", () -> geoDataClient.getLines(networkUuid));
+    }
 
-        return webClient.get()
-                .uri(geoDataServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(String.class);
+    Mono<ResponseEntity<String>> getSubstationsGraphics(UUID networkUuid) {
+        return geoDataCache.get(networkUuid, "substations", () -> geoDataClient.getSubstations(networkUuid));
     }
 
     Mono<Boolean> caseExists(UUID caseUuid) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + CASE_API_VERSION + "/cases/{caseUuid}/exists")
-                .buildAndExpand(caseUuid)
-                .toUriString();
+        return caseClient.exists(caseUuid);
+    }
+
+    Mono<ResponseEntity<Flux<DataBuffer>>> getEquipmentsMapData(UUID networkUuid, List<String> substationsIds, String equipmentPath, String acceptEncoding) {
+        return networkMapCache.get(networkUuid, equipmentPath, substationsIds, acceptEncoding,
+            encoding -> networkMapClient.getEquipments(equipmentPath, networkUuid, substationsIds, encoding));
+    }
+
+    /**
+     * The map data of the equipments changed since a version of the study, in a single response: the substations
+     * impacted by the modifications recorded after the version are read at once from the network-map server, and
+     * their map data streamed through as the equipments of the {@link NetworkMapDelta}.
+     * <p>
+     * The stale map data served while the network-map server is unavailable may predate the modifications: the delta
+     * then fails, rather than sending a version the client would take as up to date.
+     */
+    Mono<ResponseEntity<Flux<DataBuffer>>> getNetworkMapDelta(StudyEntity study, long version) {
+        // the modifications below the version of the network read with the study are all recorded
+        long deltaVersion = study.getNetworkVersion() != null ? Math.max(version, study.getNetworkVersion()) : version;
+        return studyRepository.getNetworkModifications(study, version)
+                .collectList()
+                .flatMap(modifications -> {
+                    boolean wholeNetwork = modifications.stream().anyMatch(StudyNetworkModificationEntity::isWholeNetwork);
+                    Set<String> substationsIds = wholeNetwork ? null : modifications.stream()
+                            .filter(modification -> modification.getSubstationsIds() != null)
+                            .flatMap(modification -> modification.getSubstationsIds().stream())
+                            .collect(Collectors.toCollection(TreeSet::new));
+                    if (substationsIds != null && substationsIds.isEmpty()) {
+                        return Mono.fromCallable(() -> toJsonResponse(Flux.just(bufferFactory.wrap(
+                                objectMapper.writeValueAsBytes(new NetworkMapDelta(deltaVersion, false, substationsIds, null))))));
+                    }
+                    return getAllMapData(study.getNetworkUuid(), substationsIds != null ? new ArrayList<>(substationsIds) : null, null)
+                            .flatMap(response -> {
+                                if (BackingServiceClients.isNoStore(response)) {
+                                    BackingServiceClients.releaseBody(response);
+                                    return Mono.error(new StudyException(BACKING_SERVICE_UNAVAILABLE));
+                                }
+                                Flux<DataBuffer> equipments = Objects.requireNonNull(response.getBody())
+                                        .switchIfEmpty(Flux.defer(() -> Flux.just(wrap("null"))));
+                                return Mono.just(toJsonResponse(Flux.concat(Flux.defer(() -> Flux.just(deltaHead(deltaVersion, wholeNetwork, substationsIds))),
+                                                                            equipments,
+                                                                            Flux.defer(() -> Flux.just(wrap("}"))))));
+                            });
+                });
+    }
+
+    /**
+     * The {@link NetworkMapDelta} up to the value of its equipments, which are streamed through after it.
+     */
+    private DataBuffer deltaHead(long version, boolean wholeNetwork, Set<String> substationsIds) {
+        DataBuffer buffer = bufferFactory.allocateBuffer();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer.asOutputStream())) {
+            // the object is left open, for the equipments and the end of the object written after it
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartObject();
+            generator.writeNumberField("version", version);
+            generator.writeBooleanField("wholeNetwork", wholeNetwork);
+            generator.writeFieldName("substationsIds");
+            if (substationsIds != null) {
+                generator.writeStartArray();
+                for (String substationId : substationsIds) {
+                    generator.writeString(substationId);
+                }
+                generator.writeEndArray();
+            } else {
+                generator.writeNull();
+            }
+            generator.writeFieldName("equipments");
+            generator.writeRaw(':');
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
 
-        return webClient.get()
-                .uri(caseServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(Boolean.class);
+    private static ResponseEntity<Flux<DataBuffer>> toJsonResponse(Flux<DataBuffer> body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
-    Mono<String> getEquipmentsMapData(UUID networkUuid, List<String> substationsIds, String equipmentPath) {
-        UriComponentsBuilder builder = UriComponentsBuilder.fromPath(DELIMITER + NETWORK_MAP_API_VERSION + "/" + equipmentPath + "/{networkUuid}");
-        if (substationsIds != null) {
-            builder = builder.queryParam(QUERY_PARAM_SUBSTATION_ID, substationsIds);
+    private void evictNetworkData(UUID networkUuid, MessageHeaders headers) {
+        String updateType = headers.get(HEADER_UPDATE_TYPE, String.class);
+        if (UPDATE_TYPE_STUDY.equals(updateType)) {
+            // sent as a list, which all the brokers deliver as a collection
+            Object substationsIdsHeader = headers.get(HEADER_UPDATE_TYPE_SUBSTATIONS_IDS);
+            if (substationsIdsHeader instanceof Collection) {
+                Collection<?> substationsIds = (Collection<?>) substationsIdsHeader;
+                Set<String> ids = substationsIds.stream().map(Object::toString).collect(Collectors.toSet());
+                networkMapCache.invalidateSubstations(networkUuid, ids);
+                svgCache.invalidateSubstations(networkUuid, ids);
+            }
+            // a boolean or its text, depending on the broker
+            if (Boolean.parseBoolean(String.valueOf(headers.get(HEADER_TOPOLOGY_CHANGED)))) {
+                topologyCache.invalidateNetwork(networkUuid);
+            }
+        } else if (UPDATE_TYPE_LOADFLOW.equals(updateType)) {
+            networkMapCache.invalidateLoadFlowResults(networkUuid);
+            svgCache.invalidateNetwork(networkUuid);
         }
-        String path = builder.buildAndExpand(networkUuid).toUriString();
-
-        return webClient.get()
-                .uri(networkMapServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(String.class);
     }
 
-    Mono<String> getSubstationsMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "substations");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getSubstationsMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "substations", acceptEncoding);
     }
 
-    Mono<String> getLinesMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "lines");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getLinesMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "lines", acceptEncoding);
     }
 
-    Mono<String> getTwoWindingsTransformersMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "2-windings-transformers");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getTwoWindingsTransformersMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "2-windings-transformers", acceptEncoding);
     }
 
-    Mono<String> getThreeWindingsTransformersMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "3-windings-transformers");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getThreeWindingsTransformersMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "3-windings-transformers", acceptEncoding);
     }
 
-    Mono<String> getGeneratorsMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "generators");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getGeneratorsMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "generators", acceptEncoding);
     }
 
-    Mono<String> getBatteriesMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "batteries");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getBatteriesMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "batteries", acceptEncoding);
     }
 
-    Mono<String> getDanglingLinesMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "dangling-lines");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getDanglingLinesMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "dangling-lines", acceptEncoding);
     }
 
-    Mono<String> getHvdcLinesMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "hvdc-lines");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getHvdcLinesMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "hvdc-lines", acceptEncoding);
     }
 
-    Mono<String> getLccConverterStationsMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "lcc-converter-stations");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getLccConverterStationsMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "lcc-converter-stations", acceptEncoding);
     }
 
-    Mono<String> getVscConverterStationsMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "vsc-converter-stations");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getVscConverterStationsMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "vsc-converter-stations", acceptEncoding);
     }
 
-    Mono<String> getLoadsMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "loads");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getLoadsMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "loads", acceptEncoding);
     }
 
-    Mono<String> getShuntCompensatorsMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "shunt-compensators");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getShuntCompensatorsMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "shunt-compensators", acceptEncoding);
     }
 
-    Mono<String> getStaticVarCompensatorsMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "static-var-compensators");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getStaticVarCompensatorsMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "static-var-compensators", acceptEncoding);
     }
 
-    Mono<String> getAllMapData(UUID networkUuid, List<String> substationsIds) {
-        return getEquipmentsMapData(networkUuid, substationsIds, "all");
+    Mono<ResponseEntity<Flux<DataBuffer>>> getAllMapData(UUID networkUuid, List<String> substationsIds, String acceptEncoding) {
+        return getEquipmentsMapData(networkUuid, substationsIds, "all", acceptEncoding);
     }
 
     Mono<Void> changeSwitchState(String studyName, String userId, String switchId, boolean open) {
-        Mono<UUID> networkUuid = getNetworkUuid(studyName, userId);
+        Mono<StudyEntity> studyMono = getStudy(studyName, userId).switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND)));
 
-        return networkUuid.flatMap(uuid -> {
-            String path = UriComponentsBuilder.fromPath(DELIMITER + NETWORK_MODIFICATION_API_VERSION + "/networks/{networkUuid}/switches/{switchId}")
-                    .queryParam("open", open)
-                    .buildAndExpand(uuid, switchId)
-                    .toUriString();
-
-            Mono<Void> monoUpdateLfRes = studyRepository.updateLoadFlowResult(studyName, userId, null);
-            Mono<Void> monoUpdateLfState = studyRepository.updateLoadFlowState(studyName, userId, LoadFlowStatus.NOT_DONE)
+        return studyMono.flatMap(study -> {
+            UUID uuid = study.getNetworkUuid();
+            Mono<Void> monoUpdateLfRes = studyRepository.updateLoadFlowResult(study, null);
+            Mono<Void> monoUpdateLfState = studyRepository.updateLoadFlowState(study, LoadFlowStatus.NOT_DONE)
                     .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_LOADFLOW_STATUS))
-                    .then(invalidateSecurityAnalysisStatus(studyName, userId)
+                    .then(invalidateSecurityAnalysisStatus(study.getSecurityAnalysisResultUuid())
                             .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_SECURITY_ANALYSIS_STATUS)))
                     .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_SWITCH));
-            Mono<Set<String>> monoChangeSwitchState = webClient.put()
-                    .uri(networkModificationServerBaseUri + path)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<>() {
-                    });
-
-            return monoChangeSwitchState.flatMap(s -> {
-                emitStudyChanged(studyName, UPDATE_TYPE_STUDY, new TreeSet<>(s));
-                return Mono.empty();
-            })
+            Mono<Set<String>> monoChangeSwitchState = networkModificationClient.changeSwitchState(uuid, switchId, open);
+
+            // the modification is recorded before it is notified, for the clients to find it in the network map delta
+            return monoChangeSwitchState.flatMap(s -> studyRepository.insertNetworkModification(study, s)
+                    .doOnSuccess(e -> {
+                        networkMapCache.invalidateSubstations(uuid, s);
+                        svgCache.invalidateSubstations(uuid, s);
+                        emitStudyChanged(studyName, UPDATE_TYPE_STUDY, uuid, new TreeSet<>(s), false);
+                    }))
                     .then(monoUpdateLfRes)
                     .then(monoUpdateLfState);
         });
     }
 
     public Mono<Void> applyGroovyScript(String studyName, String userId, String groovyScript) {
-        Mono<UUID> networkUuid = getNetworkUuid(studyName, userId);
-
-        return networkUuid.flatMap(uuid -> {
-            String path = UriComponentsBuilder.fromPath(DELIMITER + NETWORK_MODIFICATION_API_VERSION + "/networks/{networkUuid}/groovy/")
-
-                    .buildAndExpand(uuid)
-                    .toUriString();
+        Mono<StudyEntity> studyMono = getStudy(studyName, userId).switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND)));
 
-            Mono<Void> monoUpdateLfRes = studyRepository.updateLoadFlowResult(studyName, userId, null);
-            Mono<Void> monoUpdateLfState = studyRepository.updateLoadFlowState(studyName, userId, LoadFlowStatus.NOT_DONE)
+        return studyMono.flatMap(study -> {
+            UUID uuid = study.getNetworkUuid();
+            Mono<Void> monoUpdateLfRes = studyRepository.updateLoadFlowResult(study, null);
+            Mono<Void> monoUpdateLfState = studyRepository.updateLoadFlowState(study, LoadFlowStatus.NOT_DONE)
                     .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_LOADFLOW_STATUS))
-                    .then(invalidateSecurityAnalysisStatus(studyName, userId)
+                    .then(invalidateSecurityAnalysisStatus(study.getSecurityAnalysisResultUuid())
                             .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_SECURITY_ANALYSIS_STATUS)));
 
-            Mono<Set<String>> monoApplyGroovy = webClient.put()
-                    .uri(networkModificationServerBaseUri + path)
-                    .body(BodyInserters.fromValue(groovyScript))
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<>() {
-                    });
-
-            return monoApplyGroovy.flatMap(s -> {
-                emitStudyChanged(studyName, UPDATE_TYPE_STUDY, new TreeSet<>(s));
-                return Mono.empty();
-            })
+            Mono<Set<String>> monoApplyGroovy = networkModificationClient.applyGroovyScript(uuid, groovyScript);
+
+            // the modification is recorded before it is notified, for the clients to find it in the network map delta
+            return monoApplyGroovy.flatMap(s -> studyRepository.insertNetworkModification(study, s)
+                    .doOnSuccess(e -> {
+                        networkMapCache.invalidateSubstations(uuid, s);
+                        svgCache.invalidateSubstations(uuid, s);
+                        // a script may create or remove equipments
+                        topologyCache.invalidateNetwork(uuid);
+                        emitStudyChanged(studyName, UPDATE_TYPE_STUDY, uuid, new TreeSet<>(s), true);
+                    }))
                     .then(monoUpdateLfRes)
                     .then(monoUpdateLfState);
         });
     }
 
     Mono<Void> runLoadFlow(String studyName, String userId) {
-        return setLoadFlowRunning(studyName, userId).then(getNetworkUuid(studyName, userId)).flatMap(uuid -> {
-            String path = UriComponentsBuilder.fromPath(DELIMITER + LOADFLOW_API_VERSION + "/networks/{networkUuid}/run")
-                    .buildAndExpand(uuid)
-                    .toUriString();
-            return webClient.put()
-                .uri(loadFlowServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(LoadFlowResult.class)
-                .flatMap(result -> studyRepository.updateLoadFlowResult(studyName, userId, toEntity(result))
-                        .then(studyRepository.updateLoadFlowState(studyName, userId, result.isOk() ? LoadFlowStatus.CONVERGED : LoadFlowStatus.DIVERGED))
+        return getStudy(studyName, userId)
+                .switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND)))
+                .flatMap(study -> setLoadFlowRunning(study).flatMap(run -> runLoadFlow(study, run)));
+    }
+
+    /**
+     * Every write of the run goes to the study read once when the run starts, found by its uuid even if the study is
+     * renamed during the run.
+     */
+    private Mono<Void> runLoadFlow(StudyEntity study, LoadFlowRun run) {
+        String studyName = study.getStudyName();
+        UUID uuid = study.getNetworkUuid();
+        return loadFlowClient.run(uuid)
+                .flatMap(result -> studyRepository.insertNetworkModification(study, null)
+                        .then(studyRepository.updateLoadFlowResult(study, toEntity(result)))
+                        .then(studyRepository.finishLoadFlow(study, run, result.isOk() ? LoadFlowStatus.CONVERGED : LoadFlowStatus.DIVERGED))
                 )
-                .doOnError(e -> studyRepository.updateLoadFlowState(studyName, userId, LoadFlowStatus.NOT_DONE)
+                .doOnError(e -> studyRepository.finishLoadFlow(study, run, LoadFlowStatus.NOT_DONE)
                     .subscribe())
-                .doOnCancel(() -> studyRepository.updateLoadFlowState(studyName, userId, LoadFlowStatus.NOT_DONE)
-                    .subscribe());
-        }).doFinally(s ->
-            emitStudyChanged(studyName, UPDATE_TYPE_LOADFLOW)
-        );
-
+                .doOnCancel(() -> studyRepository.finishLoadFlow(study, run, LoadFlowStatus.NOT_DONE)
+                    .subscribe())
+                .doFinally(s -> {
+                    // the load flow has written its results in the network
+                    networkMapCache.invalidateLoadFlowResults(uuid);
+                    svgCache.invalidateNetwork(uuid);
+                    emitStudyChanged(studyName, UPDATE_TYPE_LOADFLOW, uuid);
+                });
     }
 
     public Mono<StudyInfos> renameStudy(String studyName, String userId, String newStudyName) {
-        Mono<StudyEntity> studyMono = studyRepository.findStudy(userId, studyName);
-        return studyMono.switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND))).flatMap(study -> {
-            study.setStudyName(newStudyName);
-            Mono<Void> removeStudy = removeStudy(studyName, userId);
-            Mono<StudyEntity> insertStudy = insertStudy(newStudyName, userId, study.isPrivate(), study.getNetworkUuid(), study.getNetworkId(),
-                    study.getDescription(), study.getCaseFormat(), study.getCaseUuid(), study.isCasePrivate(), study.getLoadFlowStatus(), study.getLoadFlowResult(),
-                    study.getLoadFlowParameters(), study.getSecurityAnalysisResultUuid());
-            return removeStudy.then(insertStudy);
-        }).map(StudyService::toInfos);
+        if (studyName.equals(newStudyName)) {
+            return getStudy(studyName, userId).switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND))).map(StudyService::toInfos);
+        }
+        return studyRepository.renameStudy(userId, studyName, newStudyName)
+                .switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND)))
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(new StudyException(STUDY_ALREADY_EXISTS)))
+                .doOnSuccess(s -> {
+                    emitStudyChanged(studyName, StudyService.UPDATE_TYPE_STUDIES);
+                    emitStudyChanged(newStudyName, StudyService.UPDATE_TYPE_STUDIES);
+                })
+                .then(getStudy(newStudyName, userId))
+                .map(StudyService::toInfos);
     }
 
-    private Mono<Void> setLoadFlowRunning(String studyName, String userId) {
-        return studyRepository.updateLoadFlowState(studyName, userId, LoadFlowStatus.RUNNING)
-                .doOnSuccess(s -> emitStudyChanged(studyName, UPDATE_TYPE_LOADFLOW_STATUS));
+    private Mono<LoadFlowRun> setLoadFlowRunning(StudyEntity study) {
+        // two concurrent runs really conflict here, so taking the run is the only conditional write on a study
+        return studyRepository.startLoadFlow(study)
+                .switchIfEmpty(Mono.error(new StudyException(LOADFLOW_NOT_RUNNABLE)))
+                .doOnSuccess(s -> emitStudyChanged(study.getStudyName(), UPDATE_TYPE_LOADFLOW_STATUS));
     }
 
     public Mono<Collection<String>> getExportFormats() {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + NETWORK_CONVERSION_API_VERSION + "/export/formats")
-                .toUriString();
-
-        ParameterizedTypeReference<Collection<String>> typeRef = new ParameterizedTypeReference<Collection<String>>() { };
-
-        return webClient.get()
-                .uri(networkConversionServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(typeRef);
+        return networkConversionClient.getExportFormats();
     }
 
     public Mono<ExportNetworkInfos> exportNetwork(String studyName, String userId, String format) {
         Mono<UUID> networkUuidMono = getNetworkUuid(studyName, userId);
 
-        return networkUuidMono.flatMap(uuid -> {
-            String path = UriComponentsBuilder.fromPath(DELIMITER + NETWORK_CONVERSION_API_VERSION + "/networks/{networkUuid}/export/{format}")
-                    .buildAndExpand(uuid, format)
-                    .toUriString();
-
-            Mono<ResponseEntity<byte[]>> responseEntity = webClient.get()
-                    .uri(networkConversionServerBaseUri + path)
-                    .retrieve()
-                    .toEntity(byte[].class);
-
-            return responseEntity.map(res -> {
-                byte[] bytes = res.getBody();
-                String filename = res.getHeaders().getContentDisposition().getFilename();
-                return new ExportNetworkInfos(filename, bytes);
-            });
-        });
+        return networkUuidMono.flatMap(uuid -> networkConversionClient.exportNetwork(uuid, format))
+                .map(response -> new ExportNetworkInfos(response.getHeaders().getContentDisposition().getFilename(), response.getBody()));
     }
 
     public Mono<StudyInfos> changeStudyAccessRights(String studyName, String userId, String headerUserId, boolean toPrivate) {
@@ -652,13 +824,9 @@ public class StudyService {
         return getStudy(studyName, userId).switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND))).flatMap(studyEntity ->
                 (studyEntity.isPrivate() == toPrivate) ?
                         Mono.just(studyEntity) :
-                        studyRepository.deleteStudy(userId, studyName)
-                                .then(insertStudy(studyEntity.getStudyName(), userId, toPrivate, studyEntity.getNetworkUuid(),
-                                        studyEntity.getNetworkId(), studyEntity.getDescription(), studyEntity.getCaseFormat(),
-                                        studyEntity.getCaseUuid(), studyEntity.isCasePrivate(),
-                                        studyEntity.getLoadFlowStatus(),
-                                        studyEntity.getLoadFlowResult(),
-                                        studyEntity.getLoadFlowParameters(), studyEntity.getSecurityAnalysisResultUuid()))
+                        studyRepository.updateAccessRights(userId, studyName, toPrivate)
+                                .doOnSuccess(s -> emitStudyChanged(studyName, StudyService.UPDATE_TYPE_STUDIES))
+                                .then(getStudy(studyName, userId))
         ).map(StudyService::toInfos);
     }
 
@@ -686,11 +854,23 @@ public class StudyService {
         );
     }
 
-    private void emitStudyChanged(String studyName, String updateType, Set<String> substationsIds) {
+    private void emitStudyChanged(String studyName, String updateType, UUID networkUuid) {
+        studyUpdatePublisher.onNext(MessageBuilder.withPayload("")
+                .setHeader(HEADER_STUDY_NAME, studyName)
+                .setHeader(HEADER_UPDATE_TYPE, updateType)
+                .setHeader(HEADER_NETWORK_UUID, networkUuid.toString())
+                .build()
+        );
+    }
+
+    private void emitStudyChanged(String studyName, String updateType, UUID networkUuid, Set<String> substationsIds, boolean topologyChanged) {
         studyUpdatePublisher.onNext(MessageBuilder.withPayload("")
                 .setHeader(HEADER_STUDY_NAME, studyName)
                 .setHeader(HEADER_UPDATE_TYPE, updateType)
-                .setHeader(HEADER_UPDATE_TYPE_SUBSTATIONS_IDS, substationsIds)
+                .setHeader(HEADER_NETWORK_UUID, networkUuid.toString())
+                // a list, the other collections are converted to text by some brokers
+                .setHeader(HEADER_UPDATE_TYPE_SUBSTATIONS_IDS, new ArrayList<>(substationsIds))
+                .setHeader(HEADER_TOPOLOGY_CHANGED, topologyChanged)
                 .build()
         );
     }
@@ -801,16 +981,19 @@ public class StudyService {
                 entity.getSlackBusActivePowerMismatch());
     }
 
-    public Mono<LoadFlowParameters> getLoadFlowParameters(String studyName, String userId) {
-        return getStudy(studyName, userId).map(study -> fromEntity(study.getLoadFlowParameters()));
+    public Mono<LoadFlowResult> getLoadFlowResult(String studyName, String userId) {
+        return getStudy(studyName, userId).switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND)))
+                .flatMap(study -> studyRepository.getLoadFlowResult(study.getUuid()))
+                .map(StudyService::fromEntity);
     }
 
     Mono<Void> setLoadFlowParameters(String studyName, String userId, LoadFlowParameters parameters) {
-        return studyRepository.updateLoadFlowParameters(studyName, userId, toEntity(parameters != null ? parameters : LoadFlowParameters.load()))
-                .then(studyRepository.updateLoadFlowState(studyName, userId, LoadFlowStatus.NOT_DONE)
-                        .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_LOADFLOW_STATUS)))
-                .then(invalidateSecurityAnalysisStatus(studyName, userId)
-                        .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_SECURITY_ANALYSIS_STATUS)));
+        return getStudy(studyName, userId).switchIfEmpty(Mono.error(new StudyException(STUDY_NOT_FOUND)))
+                .flatMap(study -> studyRepository.updateLoadFlowParameters(study, toEntity(parameters != null ? parameters : LoadFlowParameters.load()))
+                        .then(studyRepository.updateLoadFlowState(study, LoadFlowStatus.NOT_DONE)
+                                .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_LOADFLOW_STATUS)))
+                        .then(invalidateSecurityAnalysisStatus(study.getSecurityAnalysisResultUuid())
+                                .doOnSuccess(e -> emitStudyChanged(studyName, UPDATE_TYPE_SECURITY_ANALYSIS_STATUS))));
     }
 
     public Mono<UUID> runSecurityAnalysis(String studyName, String userId, List<String> contingencyListNames, String parameters) {
@@ -828,19 +1011,7 @@ public class StudyService {
             } catch (JsonProcessingException e) {
                 throw new UncheckedIOException(e);
             }
-            String path = UriComponentsBuilder.fromPath(DELIMITER + SECURITY_ANALYSIS_API_VERSION + "/networks/{networkUuid}/run-and-save")
-                    .queryParam("contingencyListName", contingencyListNames)
-                    .queryParam("receiver", receiver)
-                    .buildAndExpand(uuid)
-                    .toUriString();
-
-            return webClient
-                    .post()
-                    .uri(securityAnalysisServerBaseUri + path)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(BodyInserters.fromValue(parameters))
-                    .retrieve()
-                    .bodyToMono(UUID.class);
+            return securityAnalysisClient.runAndSave(uuid, contingencyListNames, receiver, parameters);
         })
                 .flatMap(result ->
                   studyRepository.updateSecurityAnalysisResultUuid(studyName, userId, result)
@@ -856,18 +1027,7 @@ public class StudyService {
 
         return studyRepository.findStudy(userId, studyName).flatMap(entity -> {
             UUID resultUuid = entity.getSecurityAnalysisResultUuid();
-            return Mono.justOrEmpty(resultUuid).flatMap(uuid -> {
-                String path = UriComponentsBuilder.fromPath(DELIMITER + SECURITY_ANALYSIS_API_VERSION + "/results/{resultUuid}")
-                        .queryParam("limitType", limitTypes)
-                        .buildAndExpand(resultUuid)
-                        .toUriString();
-                return webClient
-                        .get()
-                        .uri(securityAnalysisServerBaseUri + path)
-                        .retrieve()
-                        .onStatus(httpStatus -> httpStatus == HttpStatus.NOT_FOUND, clientResponse -> Mono.error(new StudyException(SECURITY_ANALYSIS_NOT_FOUND)))
-                        .bodyToMono(String.class);
-            });
+            return Mono.justOrEmpty(resultUuid).flatMap(uuid -> securityAnalysisClient.getResult(uuid, limitTypes));
         });
     }
 
@@ -880,55 +1040,26 @@ public class StudyService {
 
         return networkUuid.flatMap(uuid ->
                 Flux.fromIterable(contingencyListNames)
-                    .flatMap(contingencyListName -> {
-                        String path = UriComponentsBuilder.fromPath(DELIMITER + ACTIONS_API_VERSION + "/contingency-lists/{contingencyListName}/export")
-                                .queryParam("networkUuid", uuid)
-                                .buildAndExpand(contingencyListName)
-                                .toUriString();
-                        Mono<List<Contingency>> contingencies = webClient
-                                .get()
-                                .uri(actionsServerBaseUri + path)
-                                .retrieve()
-                                .bodyToMono(new ParameterizedTypeReference<>() { });
-                        return contingencies.map(List::size);
-                    })
+                    .flatMap(contingencyListName -> actionsClient.getContingencies(contingencyListName, uuid).map(List::size))
                     .reduce(0, Integer::sum)
         );
     }
 
     Mono<byte[]> getSubstationSvg(UUID networkUuid, String substationId, boolean useName, boolean centerLabel, boolean diagonalLabel,
                                   boolean topologicalColoring, String substationLayout) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + SINGLE_LINE_DIAGRAM_API_VERSION + "/substation-svg/{networkUuid}/{substationId}")
-                .queryParam("useName", useName)
-                .queryParam("centerLabel", centerLabel)
-                .queryParam("diagonalLabel", diagonalLabel)
-                .queryParam("topologicalColoring", topologicalColoring)
-                .queryParam("substationLayout", substationLayout)
-                .buildAndExpand(networkUuid, substationId)
-                .toUriString();
+        SingleLineDiagramClient.DiagramRequest request = singleLineDiagramClient.substationSvg(networkUuid, substationId, useName,
+                centerLabel, diagonalLabel, topologicalColoring, substationLayout);
 
-        return webClient.get()
-                .uri(singleLineDiagramServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(byte[].class);
+        return svgCache.get(networkUuid, request.getPath(), Mono.just(substationId), request::retrieve);
     }
 
     Mono<String> getSubstationSvgAndMetadata(UUID networkUuid, String substationId, boolean useName, boolean centerLabel,
                                              boolean diagonalLabel, boolean topologicalColoring, String substationLayout) {
-        String path = UriComponentsBuilder.fromPath(DELIMITER + SINGLE_LINE_DIAGRAM_API_VERSION +
-                "/substation-svg-and-metadata/{networkUuid}/{substationId}")
-                .queryParam("useName", useName)
-                .queryParam("centerLabel", centerLabel)
-                .queryParam("diagonalLabel", diagonalLabel)
-                .queryParam("topologicalColoring", topologicalColoring)
-                .queryParam("substationLayout", substationLayout)
-                .buildAndExpand(networkUuid, substationId)
-                .toUriString();
-
-        return webClient.get()
-                .uri(singleLineDiagramServerBaseUri + path)
-                .retrieve()
-                .bodyToMono(String.class);
+        SingleLineDiagramClient.DiagramRequest request = singleLineDiagramClient.substationSvgAndMetadata(networkUuid, substationId, useName,
+                centerLabel, diagonalLabel, topologicalColoring, substationLayout);
+
+        return svgCache.get(networkUuid, request.getPath(), Mono.just(substationId), request::retrieve)
+                .map(body -> new String(body, StandardCharsets.UTF_8));
     }
 
     public Mono<String> getSecurityAnalysisStatus(String studyName, String userId) {
@@ -937,17 +1068,7 @@ public class StudyService {
 
         return studyRepository.findStudy(userId, studyName).flatMap(entity -> {
             UUID resultUuid = entity.getSecurityAnalysisResultUuid();
-            return Mono.justOrEmpty(resultUuid).flatMap(uuid -> {
-                String path = UriComponentsBuilder.fromPath(DELIMITER + SECURITY_ANALYSIS_API_VERSION + "/results/{resultUuid}/status")
-                        .buildAndExpand(resultUuid)
-                        .toUriString();
-                return webClient
-                        .get()
-                        .uri(securityAnalysisServerBaseUri + path)
-                        .retrieve()
-                        .onStatus(httpStatus -> httpStatus == HttpStatus.NOT_FOUND, clientResponse -> Mono.error(new StudyException(SECURITY_ANALYSIS_NOT_FOUND)))
-                        .bodyToMono(String.class);
-            });
+            return Mono.justOrEmpty(resultUuid).flatMap(securityAnalysisClient::getStatus);
         });
     }
 
@@ -955,58 +1076,50 @@ public class StudyService {
         Objects.requireNonNull(studyName);
         Objects.requireNonNull(userId);
 
-        return studyRepository.findStudy(userId, studyName).flatMap(entity -> {
-            UUID resultUuid = entity.getSecurityAnalysisResultUuid();
-            return Mono.justOrEmpty(resultUuid).flatMap(uuid -> {
-                String path = UriComponentsBuilder.fromPath(DELIMITER + SECURITY_ANALYSIS_API_VERSION + "/results/{resultUuid}/invalidate-status")
-                        .buildAndExpand(resultUuid)
-                        .toUriString();
-                return webClient
-                        .put()
-                        .uri(securityAnalysisServerBaseUri + path)
-                        .retrieve()
-                        .bodyToMono(Void.class);
-            });
-        });
+        return studyRepository.findStudy(userId, studyName).flatMap(entity -> invalidateSecurityAnalysisStatus(entity.getSecurityAnalysisResultUuid()));
+    }
+
+    private Mono<Void> invalidateSecurityAnalysisStatus(UUID resultUuid) {
+        return Mono.justOrEmpty(resultUuid).flatMap(securityAnalysisClient::invalidateStatus);
     }
 
     void setCaseServerBaseUri(String caseServerBaseUri) {
-        this.caseServerBaseUri = caseServerBaseUri;
+        caseClient.setBaseUri(caseServerBaseUri);
     }
 
     void setNetworkConversionServerBaseUri(String networkConversionServerBaseUri) {
-        this.networkConversionServerBaseUri = networkConversionServerBaseUri;
+        networkConversionClient.setBaseUri(networkConversionServerBaseUri);
     }
 
     void setGeoDataServerBaseUri(String geoDataServerBaseUri) {
-        this.geoDataServerBaseUri = geoDataServerBaseUri;
+        geoDataClient.setBaseUri(geoDataServerBaseUri);
     }
 
     void setSingleLineDiagramServerBaseUri(String singleLineDiagramServerBaseUri) {
-        this.singleLineDiagramServerBaseUri = singleLineDiagramServerBaseUri;
+        singleLineDiagramClient.setBaseUri(singleLineDiagramServerBaseUri);
     }
 
     void setNetworkModificationServerBaseUri(String networkModificationServerBaseUri) {
-        this.networkModificationServerBaseUri = networkModificationServerBaseUri;
+        networkModificationClient.setBaseUri(networkModificationServerBaseUri);
     }
 
     void setNetworkMapServerBaseUri(String networkMapServerBaseUri) {
-        this.networkMapServerBaseUri = networkMapServerBaseUri;
+        networkMapClient.setBaseUri(networkMapServerBaseUri);
     }
 
     void setLoadFlowServerBaseUri(String loadFlowServerBaseUri) {
-        this.loadFlowServerBaseUri = loadFlowServerBaseUri;
+        loadFlowClient.setBaseUri(loadFlowServerBaseUri);
     }
 
     void setNetworkStoreServerBaseUri(String networkStoreServerBaseUri) {
-        this.networkStoreServerBaseUri = networkStoreServerBaseUri + DELIMITER;
+        networkStoreServerClient.setBaseUri(networkStoreServerBaseUri + DELIMITER);
     }
 
     public void setSecurityAnalysisServerBaseUri(String securityAnalysisServerBaseUri) {
-        this.securityAnalysisServerBaseUri = securityAnalysisServerBaseUri;
+        securityAnalysisClient.setBaseUri(securityAnalysisServerBaseUri);
     }
 
     public void setActionsServerBaseUri(String actionsServerBaseUri) {
-        this.actionsServerBaseUri = actionsServerBaseUri;
+        actionsClient.setBaseUri(actionsServerBaseUri);
     }
 }
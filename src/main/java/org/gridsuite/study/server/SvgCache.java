@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the single-line diagrams, bounded by their total size.
+ * <p>
+ * The diagrams are cached by the request sent to the single-line-diagram server, which holds the network, the
+ * equipment and all the render options, along with the substation they show. A modification only invalidates the
+ * diagrams of the impacted substations; the diagrams of a voltage level whose substation is unknown are invalidated
+ * by any modification of the network.
+ * <p>
+ * The last diagrams read are also served while the single-line-diagram server is unavailable.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class SvgCache {
+
+    private final CoalescingCache<SvgKey, Svg> cache;
+
+    public SvgCache(@Value("${study.svg-cache.maximum-size-bytes:67108864}") long maximumSizeBytes,
+                    @Value("${study.svg-cache.expire-after-access-seconds:3600}") long expireAfterAccessSeconds,
+                    @Value("${study.svg-cache.stale-maximum-size-bytes:16777216}") long staleMaximumSizeBytes,
+                    MeterRegistry meterRegistry) {
+        AsyncCache<SvgKey, Svg> svgs = Caffeine.newBuilder()
+                .maximumWeight(maximumSizeBytes)
+                .<SvgKey, Svg>weigher((key, svg) -> svg.getBody().length)
+                .expireAfterAccess(Duration.ofSeconds(expireAfterAccessSeconds))
+                .recordStats()
+                .buildAsync();
+        // 0 to fail when the single-line-diagram server is unavailable
+        Cache<SvgKey, Svg> staleSvgs = Caffeine.newBuilder()
+                .maximumWeight(staleMaximumSizeBytes)
+                .<SvgKey, Svg>weigher((key, svg) -> svg.getBody().length)
+                .build();
+        cache = new CoalescingCache<>(svgs, staleSvgs, "svg", "single-line-diagram", meterRegistry);
+    }
+
+    /**
+     * @param request the request of the diagram to the single-line-diagram server
+     * @param substationId the substation shown by the diagram, empty if unknown
+     */
+    public Mono<byte[]> get(UUID networkUuid, String request, Mono<String> substationId, Supplier<Mono<byte[]>> loader) {
+        SvgKey key = new SvgKey(networkUuid, request);
+        Mono<Svg> svg = cache.get(key, () -> Mono.zip(loader.get(), substationId.map(Optional::of).defaultIfEmpty(Optional.empty()))
+                .map(t -> new Svg(t.getT2().orElse(null), t.getT1())));
+        return cache.orStale(key, svg, Function.identity())
+                .map(Svg::getBody);
+    }
+
+    /**
+     * Invalidates the diagrams of the network which may show the given substations.
+     */
+    public void invalidateSubstations(UUID networkUuid, Collection<String> substationsIds) {
+        cache.asMap().entrySet().removeIf(entry -> entry.getKey().getNetworkUuid().equals(networkUuid)
+                && substationId(entry.getValue()).map(substationsIds::contains).orElse(true));
+    }
+
+    /**
+     * Invalidates all the diagrams of the network, for instance when the load flow has changed their values.
+     */
+    public void invalidateNetwork(UUID networkUuid) {
+        cache.asMap().keySet().removeIf(key -> key.getNetworkUuid().equals(networkUuid));
+    }
+
+    /**
+     * @return the substation of a loaded diagram, empty if unknown or still loading
+     */
+    private static Optional<String> substationId(CompletableFuture<Svg> svg) {
+        return svg.isDone() && !svg.isCompletedExceptionally() ? Optional.ofNullable(svg.join().getSubstationId()) : Optional.empty();
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @Getter
+    private static final class SvgKey {
+
+        private final UUID networkUuid;
+
+        private final String request;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static final class Svg {
+
+        private final String substationId;
+
+        private final byte[] body;
+    }
+}
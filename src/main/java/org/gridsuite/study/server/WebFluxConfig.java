@@ -11,13 +11,17 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.powsybl.contingency.json.ContingencyJsonModule;
 import com.powsybl.loadflow.json.LoadFlowParametersJsonModule;
 import com.powsybl.loadflow.json.LoadFlowResultJsonModule;
+import org.gridsuite.study.server.repository.StudyContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.multipart.MultipartHttpMessageReader;
+import org.springframework.http.codec.multipart.SynchronossPartHttpMessageReader;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.server.WebFilter;
 
 /**
  * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
@@ -25,11 +29,23 @@ import org.springframework.web.reactive.config.WebFluxConfigurer;
 @Configuration
 public class WebFluxConfig implements WebFluxConfigurer {
 
+    /**
+     * Memory used by an uploaded part, a larger part is written to a temporary file.
+     */
+    private static final int PART_MAX_IN_MEMORY_SIZE = 256 * 1024;
+
     @Override
     public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
         var objectMapper = objectMapper();
         configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
         configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+        configurer.defaultCodecs().multipartReader(new MultipartHttpMessageReader(new SynchronossPartHttpMessageReader() {
+            @Override
+            public void setMaxInMemorySize(int byteCount) {
+                // the codec limit is sized for the responses of the backing services, not for the uploaded cases
+                super.setMaxInMemorySize(Math.min(byteCount, PART_MAX_IN_MEMORY_SIZE));
+            }
+        }));
     }
 
     public static ObjectMapper createObjectMapper() {
@@ -45,4 +61,9 @@ public class WebFluxConfig implements WebFluxConfigurer {
     public ObjectMapper objectMapper() {
         return createObjectMapper();
     }
+
+    @Bean
+    public WebFilter studyContextFilter() {
+        return (exchange, chain) -> chain.filter(exchange).subscriberContext(StudyContext::put);
+    }
 }
@@ -3,6 +3,8 @@ package org.gridsuite.study.server.dto;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
 
 /**
  * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
@@ -15,6 +17,6 @@ public class ExportNetworkInfos {
 
     private String fileName;
 
-    private byte[] networkData;
+    private Flux<DataBuffer> networkData;
 
 }
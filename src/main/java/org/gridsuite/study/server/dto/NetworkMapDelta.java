@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Set;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel("Changes of the network map since a version of the study")
+public class NetworkMapDelta {
+
+    @ApiModelProperty("Version of the study the changes are up to, to send with the next request")
+    private long version;
+
+    @ApiModelProperty("True if all the substations have changed, for instance after a load flow run")
+    private boolean wholeNetwork;
+
+    @ApiModelProperty("Substations which have changed, null if all the substations have changed")
+    private Set<String> substationsIds;
+
+    @ApiModelProperty("Map data of all the equipments of the changed substations, as returned by the network-map server, null if nothing has changed")
+    @JsonRawValue
+    private String equipments;
+}
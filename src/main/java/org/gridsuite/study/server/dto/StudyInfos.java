@@ -27,7 +27,10 @@ public class StudyInfos extends BasicStudyInfos {
 
     LoadFlowStatus loadFlowStatus;
 
+    // only loaded for a single study, the listings leave it out
     LoadFlowResult loadFlowResult;
 
     boolean studyPrivate;
+
+    long version;
 }
@@ -1,5 +1,5 @@
 /**
- * Copyright (c) 2020, RTE (http://www.rte-france.com)
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
  * This Source Code Form is subject to the terms of the Mozilla Public
  * License, v. 2.0. If a copy of the MPL was not distributed with this
  * file, You can obtain one at http://mozilla.org/MPL/2.0/.
@@ -12,6 +12,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.gridsuite.study.server.dto.LoadFlowStatus;
 import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
@@ -21,14 +22,17 @@ import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
 import org.springframework.data.cassandra.core.mapping.Table;
 
 /**
+ * Study of the former study table, keyed by user and name and holding its load flow result, only read by
+ * {@link StudyMigration}.
+ *
  * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
  */
-
 @Getter
 @Setter
 @AllArgsConstructor
-@Table("privatestudy")
-public class PrivateStudyEntity implements Serializable, StudyEntity {
+@NoArgsConstructor
+@Table("study")
+public class LegacyStudyEntity implements Serializable {
 
     @PrimaryKeyColumn(name = "userId", type = PrimaryKeyType.PARTITIONED)
     private String userId;
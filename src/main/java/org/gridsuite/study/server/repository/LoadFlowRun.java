@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * A load flow run holding a study, from its RUNNING status until its final status.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@AllArgsConstructor
+@Getter
+public final class LoadFlowRun {
+
+    private final UUID studyUuid;
+
+    private final UUID runId;
+
+    // the version of the RUNNING status, the final status is written above it
+    private final long version;
+}
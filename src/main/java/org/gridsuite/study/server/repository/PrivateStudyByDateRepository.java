@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+
+@Repository
+public interface PrivateStudyByDateRepository extends ReactiveCassandraRepository<PrivateStudyByDateEntity, String> {
+
+    Flux<PrivateStudyByDateEntity> findAllByUserId(String userId);
+
+    @Query("SELECT * FROM privatestudybydate WHERE userId = :userId and creationDate <= :creationDate")
+    Flux<PrivateStudyByDateEntity> findAllByUserIdFrom(String userId, LocalDateTime creationDate);
+
+    @Query("DELETE FROM privatestudybydate WHERE userId = :userId and creationDate = :creationDate and uuid = :uuid")
+    Mono<Void> deleteByKey(String userId, LocalDateTime creationDate, UUID uuid);
+}
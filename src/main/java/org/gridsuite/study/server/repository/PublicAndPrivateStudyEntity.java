@@ -30,13 +30,16 @@ import org.springframework.data.cassandra.core.mapping.Table;
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
-@Table("study")
+@Table("studybyuuid")
 public class PublicAndPrivateStudyEntity implements Serializable, StudyEntity {
 
-    @PrimaryKeyColumn(name = "userId", type = PrimaryKeyType.PARTITIONED)
+    @PrimaryKeyColumn(name = "uuid", type = PrimaryKeyType.PARTITIONED)
+    private UUID uuid;
+
+    @Column("userId")
     private String userId;
 
-    @PrimaryKeyColumn(name = "studyName", type = PrimaryKeyType.CLUSTERED)
+    @Column("studyName")
     private String studyName;
 
     @Column("creationDate")
@@ -63,17 +66,38 @@ public class PublicAndPrivateStudyEntity implements Serializable, StudyEntity {
     @Column("isPrivate")
     private boolean isPrivate;
 
+    // null for the studies created before the status was written with the study
     @Column("loadFlowStatus")
     @CassandraType(type = DataType.Name.TEXT)
     private LoadFlowStatus loadFlowStatus;
 
-    @Column("loadFlowResult")
-    @CassandraType(type = DataType.Name.UDT, userTypeName = "loadFlowResult")
-    private LoadFlowResultEntity loadFlowResult;
-
     @Column("loadFlowParameters")
     private LoadFlowParametersEntity loadFlowParameters;
 
     @Column("securityAnalysisResultUuid")
     private UUID securityAnalysisResultUuid;
+
+    @Column("version")
+    private long version;
+
+    // the load flow run holding the study, null when no load flow runs
+    @Column("loadFlowRunId")
+    private UUID loadFlowRunId;
+
+    // the version of the last modification of the network, null before the first one
+    @Column("networkVersion")
+    private Long networkVersion;
+
+    @Override
+    public LoadFlowStatus getLoadFlowStatus() {
+        return loadFlowStatus != null ? loadFlowStatus : LoadFlowStatus.NOT_DONE;
+    }
+
+    /**
+     * @return the version of the last write to the study, its network included
+     */
+    @Override
+    public long getVersion() {
+        return networkVersion != null ? Math.max(version, networkVersion) : version;
+    }
 }
@@ -9,7 +9,6 @@ package org.gridsuite.study.server.repository;
 import org.gridsuite.study.server.dto.LoadFlowStatus;
 import org.springframework.data.cassandra.repository.Query;
 import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Mono;
 
@@ -20,22 +19,40 @@ import java.util.UUID;
  */
 
 @Repository
-public interface PublicAndPrivateStudyRepository extends ReactiveCassandraRepository<PublicAndPrivateStudyEntity, Integer> {
-
-    Mono<PublicAndPrivateStudyEntity> findByUserIdAndStudyName(String userId, String name);
-
-    @Query("DELETE FROM study WHERE userId = :userId and studyname = :studyName")
-    Mono<Void> deleteByStudyNameAndUserId(@Param("studyName") String studyName, @Param("userId") String userId);
-
-    @Query("UPDATE study SET loadFlowParameters = :lfParameter  WHERE userId = :userId and studyname = :studyName")
-    Mono<Void> updateLoadFlowParameters(String studyName, String userId, LoadFlowParametersEntity lfParameter);
-
-    @Query("UPDATE study SET loadFlowStatus = :status WHERE userId = :userId and studyname = :studyName")
-    Mono<Void> updateLoadFlowState(String studyName, String userId, LoadFlowStatus status);
-
-    @Query("UPDATE study SET loadFlowResult = :loadFlowResult WHERE userId = :userId and studyname = :studyName")
-    Mono<Void> updateLoadFlowResult(String studyName, String userId, LoadFlowResultEntity loadFlowResult);
-
-    @Query("UPDATE study SET securityAnalysisResultUuid = :securityAnalysisResultUuid WHERE userId = :userId and studyname = :studyName")
-    Mono<Void> updateSecurityAnalysisResultUuid(String studyName, String userId, UUID securityAnalysisResultUuid);
+public interface PublicAndPrivateStudyRepository extends ReactiveCassandraRepository<PublicAndPrivateStudyEntity, UUID> {
+
+    @Query("UPDATE studybyuuid USING TIMESTAMP :version SET studyName = :studyName, version = :version WHERE uuid = :uuid")
+    Mono<Void> updateStudyName(UUID uuid, String studyName, long version);
+
+    @Query("UPDATE studybyuuid USING TIMESTAMP :version SET isPrivate = :isPrivate, version = :version WHERE uuid = :uuid")
+    Mono<Void> updateIsPrivate(UUID uuid, boolean isPrivate, long version);
+
+    @Query("UPDATE studybyuuid USING TIMESTAMP :version SET loadFlowParameters = :lfParameter, version = :version WHERE uuid = :uuid")
+    Mono<Void> updateLoadFlowParameters(UUID uuid, LoadFlowParametersEntity lfParameter, long version);
+
+    @Query("UPDATE studybyuuid USING TIMESTAMP :version SET securityAnalysisResultUuid = :securityAnalysisResultUuid, version = :version WHERE uuid = :uuid")
+    Mono<Void> updateSecurityAnalysisResultUuid(UUID uuid, UUID securityAnalysisResultUuid, long version);
+
+    @Query("UPDATE studybyuuid USING TIMESTAMP :version SET loadFlowStatus = :status, version = :version WHERE uuid = :uuid")
+    Mono<Void> updateLoadFlowState(UUID uuid, LoadFlowStatus status, long version);
+
+    /**
+     * The run of the load flow is only taken and released by lightweight transactions: their timestamps come from the
+     * Cassandra coordinators, they can't be compared to the version timestamps of the plain writes, which never write
+     * this column.
+     *
+     * @return true if no load flow was running, the load flow status was NOT_DONE and the run now holds the study
+     */
+    @Query("UPDATE studybyuuid SET loadFlowRunId = :runId WHERE uuid = :uuid IF loadFlowRunId = null AND loadFlowStatus = 'NOT_DONE'")
+    Mono<Boolean> lockLoadFlowRun(UUID uuid, UUID runId);
+
+    @Query("UPDATE studybyuuid SET loadFlowRunId = null WHERE uuid = :uuid IF loadFlowRunId = :runId")
+    Mono<Boolean> unlockLoadFlowRun(UUID uuid, UUID runId);
+
+    /**
+     * Like the load flow run, the version of the network is only written by this lightweight transaction: the
+     * modifications of the network are ordered by it, whatever the clocks of the nodes recording them.
+     */
+    @Query("UPDATE studybyuuid SET networkVersion = :version WHERE uuid = :uuid IF networkVersion = :expectedVersion")
+    Mono<Boolean> compareAndSetNetworkVersion(UUID uuid, long version, Long expectedVersion);
 }
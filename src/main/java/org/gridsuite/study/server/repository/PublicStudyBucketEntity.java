@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+/**
+ * The months holding at least one public study, in a single small partition, latest first.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("publicstudybucket")
+public class PublicStudyBucketEntity implements Serializable {
+
+    public static final int BUCKET_GROUP = 0;
+
+    @PrimaryKeyColumn(name = "bucketGroup", type = PrimaryKeyType.PARTITIONED)
+    private int bucketGroup;
+
+    @PrimaryKeyColumn(name = "month", type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
+    private String month;
+}
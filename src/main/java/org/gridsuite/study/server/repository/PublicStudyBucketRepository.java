@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+
+@Repository
+public interface PublicStudyBucketRepository extends ReactiveCassandraRepository<PublicStudyBucketEntity, Integer> {
+
+    Flux<PublicStudyBucketEntity> findAllByBucketGroup(int bucketGroup);
+
+    @Query("SELECT * FROM publicstudybucket WHERE bucketGroup = :bucketGroup and month <= :month")
+    Flux<PublicStudyBucketEntity> findAllByBucketGroupFrom(int bucketGroup, String month);
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+
+@Repository
+public interface StudyByNameRepository extends ReactiveCassandraRepository<StudyByNameEntity, String> {
+
+    Mono<StudyByNameEntity> findByUserIdAndStudyName(String userId, String studyName);
+
+    @Query("SELECT * FROM studybyname WHERE userId = :userId and studyName IN :studyNames")
+    Flux<StudyByNameEntity> findAllByUserIdAndStudyNameIn(String userId, Collection<String> studyNames);
+
+    /**
+     * @return true if the name was free and is now taken by the study
+     */
+    @Query("INSERT INTO studybyname (userId, studyName, uuid) VALUES (:userId, :studyName, :uuid) IF NOT EXISTS")
+    Mono<Boolean> insertIfNotExists(String userId, String studyName, UUID uuid);
+
+    @Query("DELETE FROM studybyname WHERE userId = :userId and studyName = :studyName")
+    Mono<Void> deleteByUserIdAndStudyName(String userId, String studyName);
+}
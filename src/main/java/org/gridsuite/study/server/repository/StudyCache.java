@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Bounded near-cache of the study rows, in front of the study table.
+ * <p>
+ * Pending reads are cached too, so that an invalidation also discards the reads started before it: a row read before a
+ * write can never be cached after the write.
+ * <p>
+ * The cached studies are indexed by name, for the invalidations from the other nodes, which only know the name of the
+ * study.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class StudyCache {
+
+    private final AsyncCache<StudyKey, StudyEntity> cache;
+
+    private final ConcurrentMap<String, Set<StudyKey>> keysByName = new ConcurrentHashMap<>();
+
+    public StudyCache(@Value("${study.cache.maximum-size:10000}") long maximumSize,
+                      @Value("${study.cache.expire-after-write-seconds:300}") long expireAfterWriteSeconds,
+                      MeterRegistry meterRegistry) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .<StudyKey, StudyEntity>removalListener((key, study, cause) -> unindex(key))
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "study");
+    }
+
+    /**
+     * @param loader the read of the study, empty if the study does not exist (absent studies are not cached)
+     */
+    public Mono<StudyEntity> get(String userId, String studyName, Supplier<Mono<StudyEntity>> loader) {
+        StudyKey key = new StudyKey(userId, studyName);
+        return Mono.defer(() -> {
+            AtomicReference<CompletableFuture<StudyEntity>> study = new AtomicReference<>();
+            // the key is indexed in the same atomic step as its entry is added, the removal of a former entry can't unindex it
+            keysByName.compute(studyName, (name, keys) -> {
+                Set<StudyKey> indexedKeys = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                indexedKeys.add(key);
+                study.set(cache.get(key, (k, executor) -> loader.get().toFuture()));
+                return indexedKeys;
+            });
+            // a copy, so that a cancelled subscriber does not cancel the read shared with the other subscribers
+            return Mono.fromFuture(study.get().copy());
+        });
+    }
+
+    public void invalidate(String userId, String studyName) {
+        cache.synchronous().invalidate(new StudyKey(userId, studyName));
+    }
+
+    /**
+     * Invalidation from another node, which only knows the name of the study.
+     */
+    public void invalidate(String studyName) {
+        Set<StudyKey> keys = keysByName.get(studyName);
+        if (keys != null) {
+            cache.synchronous().invalidateAll(new ArrayList<>(keys));
+        }
+    }
+
+    private void unindex(StudyKey key) {
+        keysByName.computeIfPresent(key.getStudyName(), (name, keys) -> {
+            if (!cache.asMap().containsKey(key)) {
+                keys.remove(key);
+            }
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
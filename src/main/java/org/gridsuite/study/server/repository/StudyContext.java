@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Studies read while serving a request, held in the subscriber context of the request: every step of a request reading
+ * the same study shares a single read, whatever the cross-request cache does. A study written by the request is read
+ * again.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+public final class StudyContext {
+
+    private final Map<StudyKey, Mono<StudyEntity>> studies = new ConcurrentHashMap<>();
+
+    private StudyContext() {
+    }
+
+    /**
+     * Starts a study context, to be called once per request.
+     */
+    public static Context put(Context context) {
+        return context.put(StudyContext.class, new StudyContext());
+    }
+
+    static Mono<StudyEntity> find(String userId, String studyName, Supplier<Mono<StudyEntity>> loader) {
+        return Mono.subscriberContext().flatMap(context -> context.<StudyContext>getOrEmpty(StudyContext.class)
+                .map(studyContext -> studyContext.studies.computeIfAbsent(new StudyKey(userId, studyName), key -> loader.get().cache()))
+                .orElseGet(loader));
+    }
+
+    static void evict(Context context, String userId, String studyName) {
+        context.<StudyContext>getOrEmpty(StudyContext.class)
+                .ifPresent(studyContext -> studyContext.studies.remove(new StudyKey(userId, studyName)));
+    }
+}
@@ -15,7 +15,7 @@ import java.util.UUID;
  */
 public interface StudyEntity extends BasicStudyEntity {
 
-    void setStudyName(String studyName);
+    UUID getUuid();
 
     UUID getNetworkUuid();
 
@@ -33,9 +33,11 @@ public interface StudyEntity extends BasicStudyEntity {
 
     LoadFlowStatus getLoadFlowStatus();
 
-    LoadFlowResultEntity getLoadFlowResult();
-
     UUID getSecurityAnalysisResultUuid();
 
     LoadFlowParametersEntity getLoadFlowParameters();
+
+    long getVersion();
+
+    Long getNetworkVersion();
 }
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Position in the study listing: the key of the last study of a page. The listing merges several partitions, so it is
+ * resumed from this key rather than from a driver paging state.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Getter
+@AllArgsConstructor
+public class StudyListCursor implements StudyListingEntry {
+
+    /**
+     * Order of the listing, the clustering order of the listing index tables: latest first, then by uuid, compared as
+     * Cassandra compares random uuids, that is as unsigned bytes.
+     */
+    public static final Comparator<StudyListingEntry> LISTING_ORDER = Comparator.comparing(StudyListingEntry::getDate).reversed()
+            .thenComparing(StudyListingEntry::getUuid, Comparator.comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+                    .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned));
+
+    private final LocalDateTime date;
+
+    private final UUID uuid;
+
+    public static StudyListCursor of(StudyListingEntry study) {
+        return new StudyListCursor(study.getDate(), study.getUuid());
+    }
+
+    public boolean isBefore(StudyListingEntry study) {
+        return LISTING_ORDER.compare(this, study) < 0;
+    }
+
+    public String encode() {
+        ByteBuffer bytes = ByteBuffer.allocate(3 * Long.BYTES)
+                .putLong(date.toInstant(ZoneOffset.UTC).toEpochMilli())
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor has not been produced by {@link #encode()}
+     */
+    public static StudyListCursor decode(String cursor) {
+        Objects.requireNonNull(cursor);
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != 3 * Long.BYTES) {
+            throw new IllegalArgumentException("Invalid study list cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+        return new StudyListCursor(date, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
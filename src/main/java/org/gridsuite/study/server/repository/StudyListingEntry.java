@@ -0,0 +1,22 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Entry of a study listing index.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+public interface StudyListingEntry {
+
+    LocalDateTime getDate();
+
+    UUID getUuid();
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import com.datastax.driver.core.DataType;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+/**
+ * Load flow result of a study, stored apart from the study row which stays small. Logs are gzip compressed.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("studyloadflowresult")
+public class StudyLoadFlowResultEntity implements Serializable {
+
+    @PrimaryKeyColumn(name = "studyUuid", type = PrimaryKeyType.PARTITIONED)
+    private UUID studyUuid;
+
+    @Column("ok")
+    private boolean ok;
+
+    @Column("metrics")
+    @CassandraType(type = DataType.Name.MAP, typeArguments = { DataType.Name.TEXT, DataType.Name.TEXT })
+    private Map<String, String> metrics;
+
+    @Column("logs")
+    private ByteBuffer logs;
+
+    @Column("componentResults")
+    @CassandraType(type = DataType.Name.LIST, typeArguments = { DataType.Name.UDT }, userTypeName = "componentResult")
+    private List<ComponentResultEntity> componentResults;
+}
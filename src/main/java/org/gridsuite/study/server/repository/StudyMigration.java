@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.cassandra.core.ReactiveCassandraOperations;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Offline backfill from the former study table, keyed by user and study name and holding the load flow results: every
+ * study is copied to the tables keyed by the study uuid, with its name lookup, its listing index entry and its load flow
+ * result.
+ * <p>
+ * A study is copied only once: the changes made to it by the nodes of the former version after its copy are never
+ * copied, nor are its deletion. The backfill is to be enabled on a single node, once the nodes of the former version
+ * are stopped. It can be restarted after a failure, the studies already copied are skipped.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Component
+public class StudyMigration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StudyMigration.class);
+
+    private final StudyRepository studyRepository;
+
+    private final ReactiveCassandraOperations cassandraOperations;
+
+    private final boolean enabled;
+
+    // the studies being copied at the same time, each copy being a few writes
+    private final int concurrency;
+
+    public StudyMigration(StudyRepository studyRepository,
+                          ReactiveCassandraOperations cassandraOperations,
+                          @Value("${study.migration.enabled:false}") boolean enabled,
+                          @Value("${study.migration.concurrency:8}") int concurrency) {
+        this.studyRepository = studyRepository;
+        this.cassandraOperations = cassandraOperations;
+        this.enabled = enabled;
+        this.concurrency = concurrency;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        copyLegacyStudies()
+                .subscribe(count -> LOGGER.info("{} studies copied from the former study table", count),
+                    throwable -> LOGGER.error("Study table migration failed", throwable));
+    }
+
+    /**
+     * @return the number of studies copied, the studies already copied being left out
+     */
+    public Mono<Long> copyLegacyStudies() {
+        return cassandraOperations.select("SELECT userId, studyName, creationDate, networkUuid, networkId, description, caseFormat, caseUuid, casePrivate, isPrivate, "
+                        + "loadFlowStatus, loadFlowResult, loadFlowParameters, securityAnalysisResultUuid FROM study", LegacyStudyEntity.class)
+                .flatMap(studyRepository::copyLegacyStudy, concurrency)
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import com.datastax.driver.core.DataType;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+/**
+ * A modification of the network of a study, with the substations it has impacted, in the order of the study versions.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("studynetworkmodification")
+public class StudyNetworkModificationEntity implements Serializable {
+
+    @PrimaryKeyColumn(name = "studyUuid", type = PrimaryKeyType.PARTITIONED)
+    private UUID studyUuid;
+
+    @PrimaryKeyColumn(name = "version", ordinal = 0, type = PrimaryKeyType.CLUSTERED)
+    private long version;
+
+    @Column("substationsIds")
+    @CassandraType(type = DataType.Name.SET, typeArguments = DataType.Name.TEXT)
+    private Set<String> substationsIds;
+
+    // the modification has impacted all the substations, like a load flow run
+    @Column("wholeNetwork")
+    private boolean wholeNetwork;
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+
+@Repository
+public interface StudyNetworkModificationRepository extends ReactiveCassandraRepository<StudyNetworkModificationEntity, UUID> {
+
+    @Query("SELECT * FROM studynetworkmodification WHERE studyUuid = :studyUuid and version > :version")
+    Flux<StudyNetworkModificationEntity> findAllByStudyUuidAfter(UUID studyUuid, long version);
+
+    @Query("DELETE FROM studynetworkmodification WHERE studyUuid = :studyUuid")
+    Mono<Void> deleteByStudyUuid(UUID studyUuid);
+}
@@ -7,15 +7,30 @@
 package org.gridsuite.study.server.repository;
 
 import org.gridsuite.study.server.dto.LoadFlowStatus;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.function.Tuple2;
+import reactor.util.context.Context;
+import reactor.util.function.Tuples;
 
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Geoffroy Jamgotchian <geoffroy.jamgotchian at rte-france.com>
@@ -23,16 +38,61 @@ import java.util.UUID;
 @Repository
 public class StudyRepository {
 
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    // larger IN queries put too much load on the coordinator
+    private static final int MAX_IN_QUERY_SIZE = 100;
+
+    // the modifications of the network of a study racing with another one, before giving up
+    private static final int MAX_NETWORK_MODIFICATION_ATTEMPTS = 5;
+
     private final PublicAndPrivateStudyRepository publicAndPrivateStudyRepository;
 
-    private final PrivateStudyRepository privateStudyRepository;
+    private final StudyByNameRepository studyByNameRepository;
+
+    private final PublicStudyByDateRepository publicStudyByDateRepository;
+
+    private final PublicStudyBucketRepository publicStudyBucketRepository;
+
+    private final PrivateStudyByDateRepository privateStudyByDateRepository;
+
+    private final StudySummaryRepository studySummaryRepository;
+
+    private final StudyLoadFlowResultRepository studyLoadFlowResultRepository;
+
+    private final StudyNetworkModificationRepository studyNetworkModificationRepository;
+
+    private final StudyCache studyCache;
 
-    private final PublicStudyRepository publicStudyRepository;
+    private final AtomicLong lastVersion = new AtomicLong();
 
-    public StudyRepository(PublicAndPrivateStudyRepository publicAndPrivateStudyRepository, PrivateStudyRepository privateStudyRepository, PublicStudyRepository publicStudyRepository) {
+    // the retention of the modifications of the networks, the default time to live of their table
+    private final long networkModificationRetentionMicros;
+
+    public StudyRepository(PublicAndPrivateStudyRepository publicAndPrivateStudyRepository,
+                           StudyByNameRepository studyByNameRepository,
+                           PublicStudyByDateRepository publicStudyByDateRepository,
+                           PublicStudyBucketRepository publicStudyBucketRepository,
+                           PrivateStudyByDateRepository privateStudyByDateRepository,
+                           StudySummaryRepository studySummaryRepository,
+                           StudyLoadFlowResultRepository studyLoadFlowResultRepository,
+                           StudyNetworkModificationRepository studyNetworkModificationRepository,
+                           StudyCache studyCache,
+                           @Value("${study.network-modification.time-to-live-seconds:604800}") long networkModificationTimeToLiveSeconds) {
         this.publicAndPrivateStudyRepository = publicAndPrivateStudyRepository;
-        this.privateStudyRepository = privateStudyRepository;
-        this.publicStudyRepository = publicStudyRepository;
+        this.studyByNameRepository = studyByNameRepository;
+        this.publicStudyByDateRepository = publicStudyByDateRepository;
+        this.publicStudyBucketRepository = publicStudyBucketRepository;
+        this.privateStudyByDateRepository = privateStudyByDateRepository;
+        this.studySummaryRepository = studySummaryRepository;
+        this.studyLoadFlowResultRepository = studyLoadFlowResultRepository;
+        this.studyNetworkModificationRepository = studyNetworkModificationRepository;
+        this.studyCache = studyCache;
+        this.networkModificationRetentionMicros = TimeUnit.SECONDS.toMicros(networkModificationTimeToLiveSeconds);
+    }
+
+    static String monthOf(LocalDateTime date) {
+        return MONTH_FORMATTER.format(date);
     }
 
     public Flux<StudyEntity> getStudies(String userId) {
@@ -40,16 +100,64 @@ public class StudyRepository {
     }
 
     public Flux<StudyEntity> getPublicStudies() {
-        return publicStudyRepository.findAll().cast(StudyEntity.class);
+        return findStudies(getPublicStudyKeys(null));
     }
 
     public Flux<StudyEntity> getPrivateStudies(String userId) {
-        return privateStudyRepository.findAllByUserId(userId).cast(StudyEntity.class);
+        return findStudies(privateStudyByDateRepository.findAllByUserId(userId));
+    }
+
+    /**
+     * A page of the public studies and of the private studies of a user, latest first.
+     *
+     * @param after the last study of the previous page, null for the first page
+     */
+    public Flux<StudyEntity> getStudies(String userId, StudyListCursor after, int limit) {
+        return findStudies(getStudyKeys(userId, after).take(limit));
     }
 
+    /**
+     * The public studies and the private studies of a user, latest first, reading only the listed columns.
+     */
+    public Flux<StudySummaryEntity> getStudySummaries(String userId) {
+        return getStudyKeys(userId, null)
+                .flatMapSequential(key -> studySummaryRepository.findSummary(key.getUuid()));
+    }
+
+    /**
+     * Both listing indexes are read in their clustering order and merged, so only the studies being listed and the
+     * driver fetch buffers are held in memory.
+     */
+    private Flux<StudyListingEntry> getStudyKeys(String userId, StudyListCursor after) {
+        Flux<StudyListingEntry> privateStudyKeys = after == null
+                ? privateStudyByDateRepository.findAllByUserId(userId).cast(StudyListingEntry.class)
+                : privateStudyByDateRepository.findAllByUserIdFrom(userId, after.getDate()).cast(StudyListingEntry.class).filter(after::isBefore);
+        return Flux.mergeOrdered(StudyListCursor.LISTING_ORDER, getPublicStudyKeys(after), privateStudyKeys);
+    }
+
+    private Flux<StudyListingEntry> getPublicStudyKeys(StudyListCursor after) {
+        if (after == null) {
+            return publicStudyBucketRepository.findAllByBucketGroup(PublicStudyBucketEntity.BUCKET_GROUP)
+                    .concatMap(bucket -> publicStudyByDateRepository.findAllByMonth(bucket.getMonth()))
+                    .cast(StudyListingEntry.class);
+        }
+        return publicStudyBucketRepository.findAllByBucketGroupFrom(PublicStudyBucketEntity.BUCKET_GROUP, monthOf(after.getDate()))
+                .concatMap(bucket -> publicStudyByDateRepository.findAllByMonthFrom(bucket.getMonth(), after.getDate()))
+                .cast(StudyListingEntry.class)
+                .filter(after::isBefore);
+    }
+
+    private Flux<StudyEntity> findStudies(Flux<? extends StudyListingEntry> studyKeys) {
+        return studyKeys.flatMapSequential(key -> publicAndPrivateStudyRepository.findById(key.getUuid()))
+                .cast(StudyEntity.class);
+    }
+
+    /**
+     * @return the new study, empty if the user already has a study of the same name
+     */
     public Mono<StudyEntity> insertStudy(String studyName, String userId, boolean isPrivate, UUID networkUuid, String networkId,
                                          String description, String caseFormat, UUID caseUuid, boolean casePrivate,
-                                         LoadFlowStatus loadFlowStatus, LoadFlowResultEntity loadFlowResult, LoadFlowParametersEntity loadFlowParameters, UUID securityAnalysisUuid) {
+                                         LoadFlowStatus loadFlowStatus, LoadFlowParametersEntity loadFlowParameters, UUID securityAnalysisUuid) {
         Objects.requireNonNull(studyName);
         Objects.requireNonNull(userId);
         Objects.requireNonNull(networkUuid);
@@ -58,60 +166,316 @@ public class StudyRepository {
         Objects.requireNonNull(caseUuid);
         Objects.requireNonNull(loadFlowStatus);
         Objects.requireNonNull(loadFlowParameters);
-        PublicAndPrivateStudyEntity publicAndPrivateStudyEntity = new PublicAndPrivateStudyEntity(userId, studyName, LocalDateTime.now(ZoneOffset.UTC), networkUuid, networkId, description, caseFormat, caseUuid,
-                                                                                                  casePrivate, isPrivate, loadFlowStatus, loadFlowResult,
-                                                                                                  loadFlowParameters, securityAnalysisUuid);
-        PublicStudyEntity publicStudyEntity = new PublicStudyEntity(userId, studyName, LocalDateTime.now(ZoneOffset.UTC), networkUuid, networkId, description, caseFormat, caseUuid,
-                                                                    casePrivate, isPrivate, loadFlowStatus, loadFlowResult,
-                                                                    loadFlowParameters, securityAnalysisUuid);
-        PrivateStudyEntity privateStudyEntity = new PrivateStudyEntity(userId, studyName, LocalDateTime.now(ZoneOffset.UTC), networkUuid, networkId, description, caseFormat, caseUuid,
-                                                                       casePrivate, isPrivate, loadFlowStatus, loadFlowResult,
-                                                                       loadFlowParameters, securityAnalysisUuid);
-        if (!isPrivate) {
-            return Mono.zip(publicStudyRepository.insert(publicStudyEntity), publicAndPrivateStudyRepository.insert(publicAndPrivateStudyEntity))
-                    .map(Tuple2::getT2);
-        } else {
-            return Mono.zip(privateStudyRepository.insert(privateStudyEntity), publicAndPrivateStudyRepository.insert(publicAndPrivateStudyEntity))
-                    .map(Tuple2::getT2);
+        // the storage precision, so that the listing cursors match the stored dates
+        LocalDateTime creationDate = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MILLIS);
+        UUID uuid = UUID.randomUUID();
+        PublicAndPrivateStudyEntity publicAndPrivateStudyEntity = new PublicAndPrivateStudyEntity(uuid, userId, studyName, creationDate, networkUuid, networkId, description, caseFormat, caseUuid,
+                                                                                                  casePrivate, isPrivate, loadFlowStatus,
+                                                                                                  loadFlowParameters, securityAnalysisUuid, nextVersion(), null, null);
+        // the name is taken last, once the study can be read through it, by a lightweight transaction like a rename:
+        // the study losing the name to a concurrent creation or rename is removed
+        return invalidating(userId, studyName, Mono.zip(publicAndPrivateStudyRepository.insert(publicAndPrivateStudyEntity), insertListingIndex(publicAndPrivateStudyEntity, isPrivate))
+                .flatMap(t -> studyByNameRepository.insertIfNotExists(userId, studyName, uuid))
+                .flatMap(applied -> Boolean.TRUE.equals(applied)
+                        ? Mono.<StudyEntity>just(publicAndPrivateStudyEntity)
+                        : deleteStudy(publicAndPrivateStudyEntity).then(Mono.empty())));
+    }
+
+    /**
+     * Copies a study of the former study table, unless it has already been copied.
+     *
+     * @return true if the study has been copied
+     */
+    Mono<Boolean> copyLegacyStudy(LegacyStudyEntity legacyStudy) {
+        String userId = legacyStudy.getUserId();
+        String studyName = legacyStudy.getStudyName();
+        return studyByNameRepository.findByUserIdAndStudyName(userId, studyName).hasElement().flatMap(copied -> {
+            if (Boolean.TRUE.equals(copied)) {
+                return Mono.just(false);
+            }
+            PublicAndPrivateStudyEntity study = new PublicAndPrivateStudyEntity(UUID.randomUUID(), userId, studyName, legacyStudy.getDate(),
+                    legacyStudy.getNetworkUuid(), legacyStudy.getNetworkId(), legacyStudy.getDescription(), legacyStudy.getCaseFormat(),
+                    legacyStudy.getCaseUuid(), legacyStudy.isCasePrivate(), legacyStudy.isPrivate(),
+                    legacyStudy.getLoadFlowStatus() != null ? legacyStudy.getLoadFlowStatus() : LoadFlowStatus.NOT_DONE,
+                    legacyStudy.getLoadFlowParameters(), legacyStudy.getSecurityAnalysisResultUuid(), nextVersion(), null, null);
+            Mono<Void> copyLoadFlowResult = legacyStudy.getLoadFlowResult() != null
+                    ? updateLoadFlowResult(study.getUuid(), legacyStudy.getLoadFlowResult())
+                    : Mono.empty();
+            // the name is taken last, by a single node if several run the copy at the same time, the others remove their copy
+            return Mono.when(publicAndPrivateStudyRepository.insert(study), insertListingIndex(study, study.isPrivate()), copyLoadFlowResult)
+                    .then(studyByNameRepository.insertIfNotExists(userId, studyName, study.getUuid()))
+                    .flatMap(applied -> Boolean.TRUE.equals(applied) ? Mono.just(true) : deleteStudy(study).thenReturn(false));
+        });
+    }
+
+    private Mono<Boolean> insertListingIndex(StudyEntity study, boolean isPrivate) {
+        if (isPrivate) {
+            return privateStudyByDateRepository.insert(new PrivateStudyByDateEntity(study.getUserId(), study.getDate(), study.getUuid()))
+                    .thenReturn(true);
         }
+        String month = monthOf(study.getDate());
+        return Mono.when(publicStudyBucketRepository.save(new PublicStudyBucketEntity(PublicStudyBucketEntity.BUCKET_GROUP, month)),
+                         publicStudyByDateRepository.insert(new PublicStudyByDateEntity(month, study.getDate(), study.getUuid())))
+                .thenReturn(true);
+    }
+
+    private Mono<Void> deleteListingIndex(StudyEntity study) {
+        return study.isPrivate()
+                ? privateStudyByDateRepository.deleteByKey(study.getUserId(), study.getDate(), study.getUuid())
+                : publicStudyByDateRepository.deleteByKey(monthOf(study.getDate()), study.getDate(), study.getUuid());
     }
 
     public Mono<StudyEntity> findStudy(String userId, String studyName) {
-        return publicAndPrivateStudyRepository.findByUserIdAndStudyName(userId, studyName).cast(StudyEntity.class);
+        return StudyContext.find(userId, studyName,
+            () -> studyCache.get(userId, studyName, () -> studyByNameRepository.findByUserIdAndStudyName(userId, studyName)
+                    .flatMap(studyByName -> publicAndPrivateStudyRepository.findById(studyByName.getUuid()))
+                    .cast(StudyEntity.class)));
+    }
+
+    /**
+     * Several studies, in no particular order, the unknown ones being left out. The names of a user are looked up by
+     * a query on their partition, then the studies are read through the cache.
+     *
+     * @param studyNamesByUser the names of the studies, by user
+     * @param concurrency the maximum number of name queries run at the same time, and of study reads
+     */
+    public Flux<StudyEntity> findStudies(Map<String, ? extends Collection<String>> studyNamesByUser, int concurrency) {
+        // the names of all the users, chunked, then queried with a single bound
+        return Flux.fromIterable(studyNamesByUser.entrySet())
+                .concatMap(studyNames -> Flux.fromIterable(studyNames.getValue())
+                        .buffer(MAX_IN_QUERY_SIZE)
+                        .map(names -> Tuples.of(studyNames.getKey(), names)))
+                .flatMap(names -> studyByNameRepository.findAllByUserIdAndStudyNameIn(names.getT1(), names.getT2()), concurrency)
+                .flatMap(studyByName -> studyCache.get(studyByName.getUserId(), studyByName.getStudyName(),
+                    () -> publicAndPrivateStudyRepository.findById(studyByName.getUuid()).cast(StudyEntity.class)), concurrency);
+    }
+
+    /**
+     * Invalidates the cached studies after a change made by another node.
+     */
+    public void evictStudies(String studyName) {
+        studyCache.invalidate(studyName);
+    }
+
+    /**
+     * The study is evicted before the write, then once it is done, so that it is read again from the table afterwards.
+     */
+    private <T> Mono<T> invalidating(String userId, String studyName, Mono<T> write) {
+        return Mono.subscriberContext().flatMap(context -> {
+            evict(context, userId, studyName);
+            return write.doFinally(s -> evict(context, userId, studyName));
+        });
+    }
+
+    private <T> Mono<T> invalidating(StudyEntity study, Mono<T> write) {
+        return invalidating(study.getUserId(), study.getStudyName(), write);
+    }
+
+    private void evict(Context context, String userId, String studyName) {
+        StudyContext.evict(context, userId, studyName);
+        studyCache.invalidate(userId, studyName);
+    }
+
+    /**
+     * Writes to the row of a study, found by its uuid which never changes: the cached study is enough to find it.
+     */
+    private <T> Mono<T> updateStudy(String userId, String studyName, Function<UUID, Mono<T>> update) {
+        return findStudy(userId, studyName).flatMap(study -> invalidating(userId, studyName, update.apply(study.getUuid())));
     }
 
     public Mono<Void> deleteStudy(String userId, String studyName) {
-        return Mono.zip(privateStudyRepository.deleteByStudyNameAndUserId(studyName, userId),
-                        publicStudyRepository.deleteByStudyNameAndUserId(studyName, userId),
-                        publicAndPrivateStudyRepository.deleteByStudyNameAndUserId(studyName, userId)).then();
+        // the listing index is keyed by the creation date, which is read first
+        return invalidating(userId, studyName, findStudy(userId, studyName)
+                .flatMap(study -> studyByNameRepository.deleteByUserIdAndStudyName(userId, studyName).then(deleteStudy(study))));
     }
 
-    public Mono<Void> updateLoadFlowState(String studyName, String userId, LoadFlowStatus lfStatus) {
-        return Mono.zip(publicAndPrivateStudyRepository.updateLoadFlowState(studyName, userId, lfStatus),
-                        privateStudyRepository.updateLoadFlowState(studyName, userId, lfStatus),
-                        publicStudyRepository.updateLoadFlowState(studyName, userId, lfStatus))
-                .then();
+    private Mono<Void> deleteStudy(StudyEntity study) {
+        return Mono.when(deleteListingIndex(study),
+                         studyLoadFlowResultRepository.deleteById(study.getUuid()),
+                         studyNetworkModificationRepository.deleteByStudyUuid(study.getUuid()),
+                         publicAndPrivateStudyRepository.deleteById(study.getUuid()));
+    }
+
+    /**
+     * Only the name lookup and the name column change. The new name is taken with a lightweight transaction, so that
+     * two studies of a user can never share a name.
+     *
+     * @return true if the study has been renamed, false if the new name is already taken, empty if there is no such study
+     */
+    public Mono<Boolean> renameStudy(String userId, String studyName, String newStudyName) {
+        return updateStudy(userId, studyName, uuid -> invalidating(userId, newStudyName, studyByNameRepository.insertIfNotExists(userId, newStudyName, uuid)
+                .flatMap(applied -> Boolean.TRUE.equals(applied)
+                        ? Mono.when(publicAndPrivateStudyRepository.updateStudyName(uuid, newStudyName, nextVersion()),
+                                    studyByNameRepository.deleteByUserIdAndStudyName(userId, studyName)).thenReturn(true)
+                        : Mono.just(false))));
+    }
+
+    /**
+     * Only the privacy column changes, and the study moves from a listing index to the other.
+     */
+    public Mono<Void> updateAccessRights(String userId, String studyName, boolean isPrivate) {
+        return findStudy(userId, studyName)
+                .filter(study -> study.isPrivate() != isPrivate)
+                .flatMap(study -> invalidating(userId, studyName, Mono.when(publicAndPrivateStudyRepository.updateIsPrivate(study.getUuid(), isPrivate, nextVersion()),
+                                                                            insertListingIndex(study, isPrivate),
+                                                                            deleteListingIndex(study))));
+    }
+
+    /**
+     * Study versions are microsecond timestamps, also used as write timestamps so that the version stored in a row is
+     * always the one of the last write that reached it, whatever the order the writes are applied in.
+     */
+    private long nextVersion() {
+        long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        return lastVersion.updateAndGet(last -> Math.max(now, last + 1));
+    }
+
+    /**
+     * Like every write to a study already read by the request, found by its uuid, which never changes: the study is not
+     * read again, whatever its name has become meanwhile.
+     */
+    public Mono<Void> updateLoadFlowState(StudyEntity study, LoadFlowStatus lfStatus) {
+        return invalidating(study, publicAndPrivateStudyRepository.updateLoadFlowState(study.getUuid(), lfStatus, nextVersion()));
+    }
+
+    /**
+     * Two concurrent runs of the load flow really conflict, so the run takes the study by a lightweight transaction on
+     * a column of its own, if its load flow status is NOT_DONE, then writes the RUNNING status like any other status.
+     * The status is written above the version of the study read by the request, and the final status above the
+     * RUNNING one: the final status written by a node whose clock is behind still comes after the former statuses.
+     *
+     * @return the run, empty if another load flow is running or if the load flow status is not NOT_DONE
+     */
+    public Mono<LoadFlowRun> startLoadFlow(StudyEntity study) {
+        UUID runId = UUID.randomUUID();
+        long version = Math.max(nextVersion(), study.getVersion() + 1);
+        return invalidating(study, publicAndPrivateStudyRepository.lockLoadFlowRun(study.getUuid(), runId)
+                .filter(Boolean::booleanValue)
+                .flatMap(locked -> publicAndPrivateStudyRepository.updateLoadFlowState(study.getUuid(), LoadFlowStatus.RUNNING, version)
+                        .thenReturn(new LoadFlowRun(study.getUuid(), runId, version))));
+    }
+
+    /**
+     * Writes the final status of a run, then releases the study for the next run. The study may have been renamed
+     * during the run, so it is also evicted under the name it has now.
+     */
+    public Mono<Void> finishLoadFlow(StudyEntity study, LoadFlowRun run, LoadFlowStatus lfStatus) {
+        long version = Math.max(nextVersion(), run.getVersion() + 1);
+        return invalidating(study, publicAndPrivateStudyRepository.updateLoadFlowState(run.getStudyUuid(), lfStatus, version)
+                .then(publicAndPrivateStudyRepository.unlockLoadFlowRun(run.getStudyUuid(), run.getRunId()))
+                .then(publicAndPrivateStudyRepository.findById(run.getStudyUuid()))
+                .filter(current -> !current.getStudyName().equals(study.getStudyName()))
+                .flatMap(current -> invalidating(current, Mono.<Void>empty())));
+    }
+
+    public Mono<LoadFlowResultEntity> getLoadFlowResult(UUID studyUuid) {
+        return studyLoadFlowResultRepository.findById(studyUuid)
+                .map(result -> new LoadFlowResultEntity(result.isOk(), result.getMetrics(), decompress(result.getLogs()), result.getComponentResults()));
+    }
+
+    /**
+     * @param loadFlowResult the new result, null to delete the current one
+     */
+    public Mono<Void> updateLoadFlowResult(StudyEntity study, LoadFlowResultEntity loadFlowResult) {
+        return updateLoadFlowResult(study.getUuid(), loadFlowResult);
     }
 
-    public Mono<Void> updateLoadFlowResult(String studyName, String userId, LoadFlowResultEntity loadFlowResult) {
-        return Mono.zip(privateStudyRepository.updateLoadFlowResult(studyName, userId, loadFlowResult),
-                        publicStudyRepository.updateLoadFlowResult(studyName, userId, loadFlowResult),
-                        publicAndPrivateStudyRepository.updateLoadFlowResult(studyName, userId, loadFlowResult))
+    private Mono<Void> updateLoadFlowResult(UUID studyUuid, LoadFlowResultEntity loadFlowResult) {
+        if (loadFlowResult == null) {
+            return studyLoadFlowResultRepository.deleteById(studyUuid);
+        }
+        return studyLoadFlowResultRepository.save(new StudyLoadFlowResultEntity(studyUuid, loadFlowResult.isOk(), loadFlowResult.getMetrics(),
+                                                                                compress(loadFlowResult.getLogs()), loadFlowResult.getComponentResults()))
                 .then();
     }
 
+    static ByteBuffer compress(String text) {
+        if (text == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    static String decompress(ByteBuffer compressed) {
+        if (compressed == null) {
+            return null;
+        }
+        byte[] bytes = new byte[compressed.remaining()];
+        compressed.duplicate().get(bytes);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a modification of the network of a study, at a new version, so that the clients can ask for the changes
+     * since the version they have read.
+     *
+     * @param substationsIds the substations impacted by the modification, null if all the substations are impacted
+     */
+    public Mono<Void> insertNetworkModification(StudyEntity study, Set<String> substationsIds) {
+        return invalidating(study, insertNetworkModification(study.getUuid(), study.getVersion(), study.getNetworkVersion(), substationsIds,
+                                                             MAX_NETWORK_MODIFICATION_ATTEMPTS));
+    }
+
+    /**
+     * The version of the modification is above the version of the study read by the request, then taken by a
+     * lightweight transaction on the version of the network: a client which has read a version of the study has also
+     * read the network with all the modifications below it, even those recorded by a node whose clock is behind.
+     * The study is read again from the table only if another modification comes first, or if the study read by the
+     * request was stale.
+     * The modification is written before its version is taken, so that it is found by the clients which have read the
+     * version; the modifications whose version is not taken are left to expire, as their substations have already
+     * been notified anyway.
+     */
+    private Mono<Void> insertNetworkModification(UUID uuid, long studyVersion, Long networkVersion, Set<String> substationsIds, int attempts) {
+        long version = Math.max(nextVersion(), studyVersion + 1);
+        return studyNetworkModificationRepository.insert(new StudyNetworkModificationEntity(uuid, version, substationsIds, substationsIds == null))
+                .then(publicAndPrivateStudyRepository.compareAndSetNetworkVersion(uuid, version, networkVersion))
+                .flatMap(applied -> {
+                    if (Boolean.TRUE.equals(applied)) {
+                        return Mono.<Void>empty();
+                    }
+                    if (attempts <= 1) {
+                        return Mono.error(new IllegalStateException("Concurrent network modifications of study " + uuid));
+                    }
+                    return publicAndPrivateStudyRepository.findById(uuid)
+                            .flatMap(study -> insertNetworkModification(uuid, study.getVersion(), study.getNetworkVersion(), substationsIds, attempts - 1));
+                });
+    }
+
+    /**
+     * The modifications of the network of a study recorded after a version, oldest first. Once the modifications
+     * recorded after the version may have expired, a single modification of the whole network is returned instead.
+     */
+    public Flux<StudyNetworkModificationEntity> getNetworkModifications(StudyEntity study, long version) {
+        Long networkVersion = study.getNetworkVersion();
+        if (networkVersion == null || networkVersion <= version) {
+            return Flux.empty();
+        }
+        // with a margin for the clocks of the nodes, the versions being their microsecond timestamps
+        long oldestRetainedVersion = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()) - networkModificationRetentionMicros
+                + TimeUnit.HOURS.toMicros(1);
+        if (version < oldestRetainedVersion) {
+            return Flux.just(new StudyNetworkModificationEntity(study.getUuid(), networkVersion, null, true));
+        }
+        return studyNetworkModificationRepository.findAllByStudyUuidAfter(study.getUuid(), version);
+    }
+
     public Mono<Void> updateSecurityAnalysisResultUuid(String studyName, String userId, UUID securityAnalysisResultUuid) {
-        return Mono.zip(privateStudyRepository.updateSecurityAnalysisResultUuid(studyName, userId, securityAnalysisResultUuid),
-                        publicStudyRepository.updateSecurityAnalysisResultUuid(studyName, userId, securityAnalysisResultUuid),
-                        publicAndPrivateStudyRepository.updateSecurityAnalysisResultUuid(studyName, userId, securityAnalysisResultUuid))
-                .then();
+        return updateStudy(userId, studyName, uuid -> publicAndPrivateStudyRepository.updateSecurityAnalysisResultUuid(uuid, securityAnalysisResultUuid, nextVersion()));
     }
 
-    public Mono<Void> updateLoadFlowParameters(String studyName, String userId, LoadFlowParametersEntity parameters) {
-        return Mono.zip(publicAndPrivateStudyRepository.updateLoadFlowParameters(studyName, userId, parameters),
-                        publicStudyRepository.updateLoadFlowParameters(studyName, userId, parameters),
-                        privateStudyRepository.updateLoadFlowParameters(studyName, userId, parameters)
-        ).then();
+    public Mono<Void> updateLoadFlowParameters(StudyEntity study, LoadFlowParametersEntity parameters) {
+        return invalidating(study, publicAndPrivateStudyRepository.updateLoadFlowParameters(study.getUuid(), parameters, nextVersion()));
     }
 
 }
@@ -1,5 +1,5 @@
 /**
- * Copyright (c) 2020, RTE (http://www.rte-france.com)
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
  * This Source Code Form is subject to the terms of the Mozilla Public
  * License, v. 2.0. If a copy of the MPL was not distributed with this
  * file, You can obtain one at http://mozilla.org/MPL/2.0/.
@@ -12,6 +12,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.gridsuite.study.server.dto.LoadFlowStatus;
 import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
@@ -21,42 +22,29 @@ import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
 import org.springframework.data.cassandra.core.mapping.Table;
 
 /**
+ * Read-only projection of the study table on the columns needed to list the studies.
+ *
  * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
  */
-
 @Getter
 @Setter
 @AllArgsConstructor
-@Table("publicstudy")
-public class PublicStudyEntity implements Serializable, StudyEntity {
+@NoArgsConstructor
+@Table("studybyuuid")
+public class StudySummaryEntity implements Serializable, BasicStudyEntity {
+
+    @PrimaryKeyColumn(name = "uuid", type = PrimaryKeyType.PARTITIONED)
+    private UUID uuid;
 
-    @PrimaryKeyColumn(name = "userId", type = PrimaryKeyType.PARTITIONED)
+    @Column("userId")
     private String userId;
 
-    @PrimaryKeyColumn(name = "studyName", type = PrimaryKeyType.CLUSTERED)
+    @Column("studyName")
     private String studyName;
 
     @Column("creationDate")
     private LocalDateTime date;
 
-    @Column("networkUuid")
-    private UUID networkUuid;
-
-    @Column("networkId")
-    private String networkId;
-
-    @Column("description")
-    private String description;
-
-    @Column("caseFormat")
-    private String caseFormat;
-
-    @Column("caseUuid")
-    private UUID caseUuid;
-
-    @Column("casePrivate")
-    private boolean casePrivate;
-
     @Column("isPrivate")
     private boolean isPrivate;
 
@@ -64,13 +52,8 @@ public class PublicStudyEntity implements Serializable, StudyEntity {
     @CassandraType(type = DataType.Name.TEXT)
     private LoadFlowStatus loadFlowStatus;
 
-    @Column("loadFlowResult")
-    @CassandraType(type = DataType.Name.UDT, userTypeName = "loadFlowResult")
-    private LoadFlowResultEntity loadFlowResult;
-
-    @Column("loadFlowParameters")
-    private LoadFlowParametersEntity loadFlowParameters;
-
-    @Column("securityAnalysisResultUuid")
-    private UUID securityAnalysisResultUuid;
+    public LoadFlowStatus getLoadFlowStatus() {
+        // null until the first load flow status transition
+        return loadFlowStatus != null ? loadFlowStatus : LoadFlowStatus.NOT_DONE;
+    }
 }
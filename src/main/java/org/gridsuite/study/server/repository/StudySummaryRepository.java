@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server.repository;
+
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+
+@Repository
+public interface StudySummaryRepository extends ReactiveCassandraRepository<StudySummaryEntity, UUID> {
+
+    @Query("SELECT uuid, userId, studyName, creationDate, isPrivate, loadFlowStatus FROM studybyuuid WHERE uuid = :uuid")
+    Mono<StudySummaryEntity> findSummary(UUID uuid);
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.gridsuite.study.server.StudyException.Type.BACKING_SERVICE_UNAVAILABLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+public class BackingServiceBreakerTest {
+
+    private static final ClientRequest REQUEST = ClientRequest.create(HttpMethod.GET, URI.create("http://service/v1/resource")).build();
+
+    @Test
+    public void testCircuit() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BackingServiceBreaker breaker = new BackingServiceBreaker("service", 2, Duration.ofMillis(200), 10, meterRegistry);
+        AtomicInteger sent = new AtomicInteger();
+        ExchangeFunction failing = request -> {
+            sent.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        };
+
+        // the circuit opens after consecutive failures, and a success in between resets them
+        breaker.filter(REQUEST, failing).block();
+        breaker.filter(REQUEST, request -> Mono.just(ClientResponse.create(HttpStatus.OK).build())).block();
+        breaker.filter(REQUEST, failing).block();
+        assertEquals(BackingServiceBreaker.State.CLOSED, breaker.getState());
+        breaker.filter(REQUEST, failing).block();
+        assertEquals(BackingServiceBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, meterRegistry.get(BackingServiceBreaker.CIRCUIT_STATE_METER).gauge().value(), 0);
+        assertEquals(3, sent.get());
+
+        // the open circuit fails fast, without sending the requests
+        assertUnavailable(breaker.filter(REQUEST, failing));
+        assertEquals(3, sent.get());
+        assertEquals(1, rejections(meterRegistry, "circuit-open"), 0);
+
+        // once open for a while, a single trial request is let through
+        Thread.sleep(300);
+        MonoProcessor<ClientResponse> trialResponse = MonoProcessor.create();
+        CompletableFuture<ClientResponse> trial = breaker.filter(REQUEST, request -> trialResponse).toFuture();
+        assertEquals(BackingServiceBreaker.State.HALF_OPEN, breaker.getState());
+        assertUnavailable(breaker.filter(REQUEST, failing));
+        assertEquals(2, rejections(meterRegistry, "circuit-open"), 0);
+
+        // and closes the circuit if it succeeds
+        trialResponse.onNext(ClientResponse.create(HttpStatus.OK).build());
+        assertEquals(HttpStatus.OK, trial.get().statusCode());
+        assertEquals(BackingServiceBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, meterRegistry.get(BackingServiceBreaker.CIRCUIT_STATE_METER).gauge().value(), 0);
+    }
+
+    @Test
+    public void testFailedTrialReopensTheCircuit() throws Exception {
+        BackingServiceBreaker breaker = new BackingServiceBreaker("service", 1, Duration.ofMillis(200), 10, new SimpleMeterRegistry());
+        ExchangeFunction refused = request -> Mono.error(new ConnectException("Connection refused"));
+
+        // no response at all is a failure too
+        breaker.filter(REQUEST, refused).onErrorResume(e -> Mono.empty()).block();
+        assertEquals(BackingServiceBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(300);
+        breaker.filter(REQUEST, refused).onErrorResume(e -> Mono.empty()).block();
+        assertEquals(BackingServiceBreaker.State.OPEN, breaker.getState());
+        // for a whole open duration again
+        assertUnavailable(breaker.filter(REQUEST, refused));
+    }
+
+    @Test
+    public void testBulkhead() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BackingServiceBreaker breaker = new BackingServiceBreaker("service", 5, Duration.ofSeconds(30), 2, meterRegistry);
+        AtomicInteger sent = new AtomicInteger();
+        ExchangeFunction pending = request -> {
+            sent.incrementAndGet();
+            return Mono.never();
+        };
+
+        // the requests in flight hold their permit
+        Disposable first = breaker.filter(REQUEST, pending).subscribe();
+        Disposable second = breaker.filter(REQUEST, pending).subscribe();
+        assertEquals(2, meterRegistry.get("study.backend.requests.active").gauge().value(), 0);
+
+        // the requests beyond the bulkhead fail fast, without being sent
+        assertUnavailable(breaker.filter(REQUEST, pending));
+        assertEquals(2, sent.get());
+        assertEquals(1, rejections(meterRegistry, "bulkhead-full"), 0);
+
+        // a cancelled request releases its permit, without opening the circuit
+        first.dispose();
+        assertEquals(1, meterRegistry.get("study.backend.requests.active").gauge().value(), 0);
+        assertEquals(HttpStatus.OK, breaker.filter(REQUEST, request -> Mono.just(ClientResponse.create(HttpStatus.OK).build())).block().statusCode());
+        assertEquals(BackingServiceBreaker.State.CLOSED, breaker.getState());
+        second.dispose();
+        assertEquals(0, meterRegistry.get("study.backend.requests.active").gauge().value(), 0);
+    }
+
+    @Test
+    public void testStaleResponse() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CoalescingCache<String, String> cache = new CoalescingCache<>(Caffeine.newBuilder().buildAsync(),
+                Caffeine.newBuilder().maximumSize(10).build(), "cache", "service", meterRegistry);
+        assertEquals("value", cache.get("key", () -> Mono.just("value")).block());
+
+        // the last value read is served while the service is unavailable, invalidated or not
+        cache.invalidate("key");
+        Mono<String> unavailable = cache.get("key", () -> Mono.error(new StudyException(BACKING_SERVICE_UNAVAILABLE)));
+        assertEquals("stale value", cache.orStale("key", unavailable.map(v -> "fresh " + v), v -> "stale " + v).block());
+        assertEquals(1, meterRegistry.get("study.backend.responses.stale").counter().count(), 0);
+
+        // but not without a value read before, nor for the errors other than an unavailability
+        assertUnavailable(cache.orStale("other", cache.get("other", () -> Mono.error(new StudyException(BACKING_SERVICE_UNAVAILABLE))), v -> v));
+        IllegalStateException bug = new IllegalStateException();
+        try {
+            cache.orStale("key", cache.get("key", () -> Mono.error(bug)), v -> v).block();
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(bug, e);
+        }
+        assertEquals(1, meterRegistry.get("study.backend.responses.stale").counter().count(), 0);
+    }
+
+    private static double rejections(MeterRegistry meterRegistry, String reason) {
+        return meterRegistry.get("study.backend.requests.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static void assertUnavailable(Mono<?> response) {
+        try {
+            response.toFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof StudyException);
+            assertEquals(BACKING_SERVICE_UNAVAILABLE, ((StudyException) e.getCause()).getType());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail();
+        }
+    }
+}
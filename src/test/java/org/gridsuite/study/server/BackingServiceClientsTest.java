@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+public class BackingServiceClientsTest {
+
+    @Test
+    public void testSettings() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("study.backing-service-clients.default.max-connections", "20")
+                .withProperty("study.backing-service-clients.default.connect-timeout", "2s")
+                .withProperty("study.backing-service-clients.loadflow.max-connections", "4")
+                .withProperty("study.backing-service-clients.loadflow.read-timeout", "10m")
+                .withProperty("study.backing-service-clients.network-map.http2", "true");
+        BackingServiceClients clients = new BackingServiceClients(WebClient.builder(), environment, new SimpleMeterRegistry());
+
+        // the settings of a service override the default ones, which override the built-in ones
+        BackingServiceClients.ClientSettings loadFlowSettings = clients.getSettings("loadflow");
+        assertEquals(4, loadFlowSettings.getMaxConnections());
+        assertEquals(Duration.ofMinutes(10), loadFlowSettings.getReadTimeout());
+        assertEquals(Duration.ofSeconds(2), loadFlowSettings.getConnectTimeout());
+        assertEquals(500, loadFlowSettings.getPendingAcquireMaxCount());
+        assertFalse(loadFlowSettings.isHttp2());
+
+        // and never leak to the other services
+        BackingServiceClients.ClientSettings networkMapSettings = clients.getSettings("network-map");
+        assertEquals(20, networkMapSettings.getMaxConnections());
+        assertEquals(Duration.ZERO, networkMapSettings.getReadTimeout());
+        assertTrue(networkMapSettings.isHttp2());
+
+        BackingServiceClients.ClientSettings caseSettings = clients.getSettings("case");
+        assertEquals(20, caseSettings.getMaxConnections());
+        assertFalse(caseSettings.isHttp2());
+    }
+
+    @Test
+    public void testEachServiceHasItsOwnBreaker() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BackingServiceClients clients = new BackingServiceClients(WebClient.builder(), new MockEnvironment(), meterRegistry);
+        try {
+            assertNotNull(clients.create("loadflow"));
+            assertNotNull(clients.create("network-map"));
+            assertNotNull(meterRegistry.find(BackingServiceBreaker.CIRCUIT_STATE_METER).tag("service", "loadflow").gauge());
+            assertNotNull(meterRegistry.find(BackingServiceBreaker.CIRCUIT_STATE_METER).tag("service", "network-map").gauge());
+        } finally {
+            clients.dispose();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.gridsuite.study.server.dto.CaseUploadInfos;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.gridsuite.study.server.StudyException.Type.UPLOAD_TOO_LARGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+public class CaseUploadServiceTest {
+
+    private static final String USER_ID = "userId";
+
+    @Rule
+    public TemporaryFolder directory = new TemporaryFolder();
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    @Test
+    public void testUserSize() {
+        // chunks of 8 bytes at most, 10 bytes per user
+        CaseUploadService caseUploadService = newCaseUploadService();
+        UUID firstUpload = startUpload(caseUploadService, USER_ID);
+        UUID secondUpload = startUpload(caseUploadService, USER_ID);
+
+        caseUploadService.writeChunk(firstUpload, USER_ID, 0, content(6)).block();
+        assertTooLarge(caseUploadService.writeChunk(secondUpload, USER_ID, 0, content(9)));
+        // the space of the chunks of the other uploads of the user is used
+        assertTooLarge(caseUploadService.writeChunk(secondUpload, USER_ID, 0, content(5)));
+        // but not the space of the rejected chunks, nor of the other users
+        caseUploadService.writeChunk(secondUpload, USER_ID, 0, content(4)).block();
+        UUID otherUserUpload = startUpload(caseUploadService, "otherUserId");
+        caseUploadService.writeChunk(otherUserUpload, "otherUserId", 0, content(8)).block();
+        assertTooLarge(caseUploadService.writeChunk(secondUpload, USER_ID, 1, content(1)));
+
+        // a deleted upload releases its space
+        caseUploadService.deleteUpload(secondUpload, USER_ID).block();
+        // and a chunk replaced too, once the new one is written
+        caseUploadService.writeChunk(firstUpload, USER_ID, 0, content(3)).block();
+        caseUploadService.writeChunk(firstUpload, USER_ID, 1, content(7)).block();
+        assertEquals(List.of(0, 1), caseUploadService.getUpload(firstUpload, USER_ID).map(CaseUploadInfos::getReceivedChunks).block());
+        assertTooLarge(caseUploadService.writeChunk(firstUpload, USER_ID, 2, content(1)));
+
+        // the space used is read back from the disk after a restart
+        CaseUploadService restartedCaseUploadService = newCaseUploadService();
+        assertTooLarge(restartedCaseUploadService.writeChunk(firstUpload, USER_ID, 2, content(1)));
+        restartedCaseUploadService.deleteUpload(firstUpload).block();
+        restartedCaseUploadService.writeChunk(startUpload(restartedCaseUploadService, USER_ID), USER_ID, 0, content(8)).block();
+    }
+
+    private CaseUploadService newCaseUploadService() {
+        return new CaseUploadService(directory.getRoot().getPath(), 24, 8, 100, 10);
+    }
+
+    private static UUID startUpload(CaseUploadService caseUploadService, String userId) {
+        return caseUploadService.startUpload(userId, "case.xiidm").map(CaseUploadInfos::getUploadId).block();
+    }
+
+    private Flux<DataBuffer> content(int size) {
+        return Flux.just(bufferFactory.wrap(new byte[size]));
+    }
+
+    private static void assertTooLarge(Mono<Void> write) {
+        try {
+            write.block();
+            fail();
+        } catch (StudyException e) {
+            assertEquals(UPLOAD_TOO_LARGE, e.getType());
+        }
+    }
+}
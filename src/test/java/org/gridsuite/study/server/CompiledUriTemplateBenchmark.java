@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocations of the URIs of the requests to the backing services: a compiled template, against the
+ * template expanded by the WebClient and the path built by a UriComponentsBuilder then parsed by the WebClient.
+ * <p>
+ * Not run by the tests: run the main method from the test classpath, the allocations per operation are given by the
+ * gc.alloc.rate.norm results.
+ *
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompiledUriTemplateBenchmark {
+
+    private static final String BASE_URI = "http://single-line-diagram-server/";
+
+    private static final String TEMPLATE = "/v1/svg/{networkUuid}/{voltageLevelId}?useName={useName}&centerLabel={centerLabel}"
+            + "&diagonalLabel={diagonalLabel}&topologicalColoring={topologicalColoring}";
+
+    private final CompiledUriTemplate compiledTemplate = new CompiledUriTemplate(TEMPLATE);
+
+    private final DefaultUriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory();
+
+    private final UUID networkUuid = UUID.randomUUID();
+
+    private final String voltageLevelId = "VL_1";
+
+    @Benchmark
+    public URI compiledTemplate() {
+        return URI.create(compiledTemplate.expand(BASE_URI, networkUuid, voltageLevelId, false, true, false, true));
+    }
+
+    @Benchmark
+    public URI webClientTemplate() {
+        return uriBuilderFactory.expand(BASE_URI + TEMPLATE, networkUuid, voltageLevelId, false, true, false, true);
+    }
+
+    @Benchmark
+    public URI uriComponentsBuilder() {
+        String path = UriComponentsBuilder.fromPath("/v1/svg/{networkUuid}/{voltageLevelId}")
+                .queryParam("useName", false)
+                .queryParam("centerLabel", true)
+                .queryParam("diagonalLabel", false)
+                .queryParam("topologicalColoring", true)
+                .buildAndExpand(networkUuid, voltageLevelId)
+                .toUriString();
+        return uriBuilderFactory.expand(BASE_URI + path);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompiledUriTemplateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
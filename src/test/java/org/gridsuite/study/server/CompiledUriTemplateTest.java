@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import org.junit.Test;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+public class CompiledUriTemplateTest {
+
+    private static final String BASE_URI = "http://network-map-server";
+
+    private static final String TEMPLATE = "/v1/networks/{networkUuid}/voltage-levels/{voltageLevelId}?name={name}&useName={useName}";
+
+    // the reserved characters, the percent sign, a space, a plus sign and non-ASCII characters
+    private static final List<String> VALUES = List.of("VL_1", "VL 1", "a/b", "a?b", "a#b", "a&b=c", "a+b", "50%", "Été", "a;b,c:d@e!$'()*");
+
+    @Test
+    public void testExpand() {
+        CompiledUriTemplate template = new CompiledUriTemplate(TEMPLATE);
+        UUID networkUuid = UUID.randomUUID();
+        for (String value : VALUES) {
+            // as the WebClient expands the templates
+            String expected = UriComponentsBuilder.fromUriString(BASE_URI + TEMPLATE).encode()
+                    .buildAndExpand(networkUuid, value, value, true).toUriString();
+            assertEquals(expected, template.expand(BASE_URI, networkUuid, value, value, true));
+            assertEquals(new DefaultUriBuilderFactory().expand(BASE_URI + TEMPLATE, networkUuid, value, value, true),
+                    URI.create(template.expand(BASE_URI, networkUuid, value, value, true)));
+            assertEquals(expected.substring(BASE_URI.length()), template.expandPath(networkUuid, value, value, true));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingValue() {
+        new CompiledUriTemplate(TEMPLATE).expand(BASE_URI, UUID.randomUUID(), "VL_1", "name");
+    }
+
+    @Test
+    public void testQueryParam() {
+        CompiledUriTemplate template = new CompiledUriTemplate("/v1/substations/{networkUuid}");
+        UUID networkUuid = UUID.randomUUID();
+
+        // a value per parameter, the reserved characters encoded
+        StringBuilder uri = CompiledUriTemplate.appendQueryParam(template.append(template.newBuilder(BASE_URI), networkUuid), "substationId", VALUES);
+        // as with a template variable per value
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(BASE_URI + "/v1/substations/{networkUuid}");
+        List<Object> values = new ArrayList<>(List.of(networkUuid));
+        for (int i = 0; i < VALUES.size(); i++) {
+            builder.queryParam("substationId", "{substationId" + i + "}");
+            values.add(VALUES.get(i));
+        }
+        String expected = builder.encode().buildAndExpand(values.toArray()).toUriString();
+        assertEquals(expected, uri.toString());
+
+        // after the query of the template
+        StringBuilder resultUri = CompiledUriTemplate.appendQueryParam(new StringBuilder("/v1/results?networkUuid=").append(networkUuid), "limitType", List.of("CURRENT", "HIGH_VOLTAGE"));
+        assertEquals(UriComponentsBuilder.fromPath("/v1/results").queryParam("networkUuid", networkUuid).queryParam("limitType", "CURRENT", "HIGH_VOLTAGE").toUriString(),
+                resultUri.toString());
+
+        // a parameter without value is appended with its name only
+        StringBuilder emptyUri = CompiledUriTemplate.appendQueryParam(template.append(template.newBuilder(BASE_URI), networkUuid), "substationId", List.of());
+        assertEquals(UriComponentsBuilder.fromUriString(BASE_URI + "/v1/substations/" + networkUuid).queryParam("substationId").toUriString(),
+                emptyUri.toString());
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+public class HedgedRequestsTest {
+
+    @Test
+    public void testHedgeDelay() {
+        HedgedRequests.Endpoint endpoint = new HedgedRequests.Endpoint("service", "endpoint", 0.5, 0, new SimpleMeterRegistry());
+        for (int i = 1; i < 100; i++) {
+            endpoint.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        // no hedging until there are enough latencies
+        assertEquals(-1, endpoint.getHedgeDelayNanos());
+        endpoint.record(TimeUnit.MILLISECONDS.toNanos(100));
+        // the percentile of the latencies
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), endpoint.getHedgeDelayNanos());
+
+        // never below the minimum delay
+        HedgedRequests.Endpoint fastEndpoint = new HedgedRequests.Endpoint("service", "fast", 0.5, TimeUnit.MILLISECONDS.toNanos(10), new SimpleMeterRegistry());
+        for (int i = 0; i < 100; i++) {
+            fastEndpoint.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), fastEndpoint.getHedgeDelayNanos());
+    }
+
+    @Test
+    public void testBudgetAndWins() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // a hedge every 2 requests, once the burst budget is spent
+        HedgedRequests hedgedRequests = new HedgedRequests(List.of("service"), 0.5, 1, 0.5, meterRegistry);
+
+        // the latencies of the endpoint, which give the minimum delay, and the full budget
+        for (int i = 0; i < 100; i++) {
+            assertEquals("fast", hedgedRequests.get("service", "endpoint", () -> Mono.just("fast")).block());
+        }
+        assertEquals(0, meterRegistry.get("study.backend.requests.hedged").counter().count(), 0);
+
+        // the slow requests are hedged, and answered by their hedge, until the budget is spent
+        for (int i = 0; i < 19; i++) {
+            assertEquals("hedge", hedgedRequests.get("service", "endpoint", slowPrimary(Mono.just("hedge"))).block());
+        }
+        assertEquals("primary", hedgedRequests.get("service", "endpoint", slowPrimary(Mono.just("hedge"))).block());
+        assertEquals(19, meterRegistry.get("study.backend.requests.hedged").counter().count(), 0);
+        assertEquals(19, meterRegistry.get("study.backend.requests.hedge.wins").counter().count(), 0);
+
+        // a hedge slower than its request is not counted as a win
+        assertEquals("primary", hedgedRequests.get("service", "endpoint", slowPrimary(Mono.delay(Duration.ofSeconds(5)).thenReturn("hedge"))).block());
+        assertEquals(20, meterRegistry.get("study.backend.requests.hedged").counter().count(), 0);
+        assertEquals(19, meterRegistry.get("study.backend.requests.hedge.wins").counter().count(), 0);
+    }
+
+    private static Supplier<Mono<String>> slowPrimary(Mono<String> hedge) {
+        AtomicInteger sent = new AtomicInteger();
+        return () -> sent.getAndIncrement() == 0 ? Mono.delay(Duration.ofMillis(200)).thenReturn("primary") : hedge;
+    }
+}
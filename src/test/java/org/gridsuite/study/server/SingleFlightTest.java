@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.study.server;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author Abdelsalem Hedhili <abdelsalem.hedhili at rte-france.com>
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentRequestsShareTheirResponse() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SingleFlight singleFlight = new SingleFlight(meterRegistry);
+        AtomicInteger sent = new AtomicInteger();
+        MonoProcessor<String> response = MonoProcessor.create();
+        Supplier<Mono<String>> request = () -> {
+            sent.incrementAndGet();
+            return response;
+        };
+
+        // two identical requests in flight at the same time reach the service once
+        CompletableFuture<String> first = singleFlight.get("service", "/v1/networks/uuid", request).toFuture();
+        CompletableFuture<String> second = singleFlight.get("service", "/v1/networks/uuid", request).toFuture();
+        assertFalse(first.isDone());
+        response.onNext("network");
+        assertEquals("network", first.get());
+        assertEquals("network", second.get());
+        assertEquals(1, sent.get());
+        assertEquals(1, meterRegistry.get(SingleFlight.COALESCED_REQUESTS_METER).tag("service", "service").counter().count(), 0);
+
+        // once the flight has landed, the same request is sent again
+        assertEquals("network", singleFlight.get("service", "/v1/networks/uuid", request).block());
+        assertEquals(2, sent.get());
+        assertEquals(1, meterRegistry.get(SingleFlight.COALESCED_REQUESTS_METER).tag("service", "service").counter().count(), 0);
+    }
+
+    @Test
+    public void testDifferentRequestsAreNotShared() {
+        SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry());
+        AtomicInteger sent = new AtomicInteger();
+        MonoProcessor<String> response = MonoProcessor.create();
+        Supplier<Mono<String>> request = () -> {
+            sent.incrementAndGet();
+            return response;
+        };
+
+        CompletableFuture<String> first = singleFlight.get("service", "/v1/networks/uuid1", request).toFuture();
+        CompletableFuture<String> second = singleFlight.get("service", "/v1/networks/uuid2", request).toFuture();
+        response.onNext("network");
+        assertEquals("network", first.join());
+        assertEquals("network", second.join());
+        assertEquals(2, sent.get());
+    }
+}
@@ -6,8 +6,8 @@
  */
 package org.gridsuite.study.server;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.collect.ImmutableSet;
 import com.powsybl.commons.datasource.ReadOnlyDataSource;
 import com.powsybl.commons.datasource.ResourceDataSource;
 import com.powsybl.commons.datasource.ResourceSet;
@@ -15,11 +15,14 @@ import com.powsybl.iidm.import_.Importers;
 import com.powsybl.iidm.network.Network;
 import com.powsybl.iidm.network.VoltageLevel;
 import com.powsybl.loadflow.LoadFlowParameters;
+import com.powsybl.loadflow.LoadFlowResult;
 import com.powsybl.network.store.client.NetworkStoreService;
 import com.powsybl.network.store.model.Resource;
 import com.powsybl.network.store.model.ResourceType;
 import com.powsybl.network.store.model.TopLevelDocument;
 import com.powsybl.network.store.model.VoltageLevelAttributes;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.time.ZoneId;
@@ -27,7 +30,6 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 import java.util.UUID;
 import okhttp3.HttpUrl;
 import okhttp3.mockwebserver.Dispatcher;
@@ -35,6 +37,11 @@ import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
 import org.gridsuite.study.server.dto.*;
+import org.gridsuite.study.server.repository.LoadFlowParametersEntity;
+import org.gridsuite.study.server.repository.LoadFlowResultEntity;
+import org.gridsuite.study.server.repository.StudyEntity;
+import org.gridsuite.study.server.repository.StudyMigration;
+import org.gridsuite.study.server.repository.StudyRepository;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeMatcher;
 import org.junit.After;
@@ -50,6 +57,10 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.cloud.stream.binder.test.InputDestination;
 import org.springframework.cloud.stream.binder.test.OutputDestination;
 import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.data.cassandra.core.ReactiveCassandraOperations;
+import org.springframework.data.cassandra.core.cql.ReactiveCqlOperations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.messaging.Message;
@@ -68,7 +79,13 @@ import static org.gridsuite.study.server.StudyConstants.CASE_API_VERSION;
 import static org.gridsuite.study.server.StudyException.Type.CASE_NOT_FOUND;
 import static org.gridsuite.study.server.StudyException.Type.LOADFLOW_NOT_RUNNABLE;
 import static org.gridsuite.study.server.StudyException.Type.STUDY_ALREADY_EXISTS;
+import static org.gridsuite.study.server.StudyException.Type.UPLOAD_INCOMPLETE;
+import static org.gridsuite.study.server.StudyException.Type.UPLOAD_NOT_FOUND;
+import static org.gridsuite.study.server.StudyException.Type.UPLOAD_TOO_LARGE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 
 /**
@@ -131,6 +148,24 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
     @Autowired
     private StudyService studyService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StudyRepository studyRepository;
+
+    @Autowired
+    private NetworkMapCache networkMapCache;
+
+    // the network-map server answers the map data of the substations with 503
+    private volatile boolean networkMapUnavailable;
+
+    @Autowired
+    private StudyMigration studyMigration;
+
+    @Autowired
+    private ReactiveCassandraOperations cassandraOperations;
+
     @MockBean
     private NetworkStoreService networkStoreClient;
 
@@ -139,6 +174,8 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
 
     private TopLevelDocument<VoltageLevelAttributes> topLevelDocument;
 
+    private TopLevelDocument<com.powsybl.network.store.model.SubstationAttributes> substationsDocument;
+
     private MockWebServer server;
 
     @Before
@@ -156,6 +193,11 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
 
             topLevelDocument = new TopLevelDocument<>(data, null);
 
+            List<Resource<com.powsybl.network.store.model.SubstationAttributes>> substationsData = new ArrayList<>();
+            network.getSubstations().forEach(s -> substationsData.add(new Resource<>(ResourceType.SUBSTATION, s.getId(),
+                    com.powsybl.network.store.model.SubstationAttributes.builder().name(s.getName()).build(), null, null)));
+            substationsDocument = new TopLevelDocument<>(substationsData, null);
+
             server = new MockWebServer();
 
             // Start the server.
@@ -178,6 +220,7 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
             String networkInfosAsString = mapper.writeValueAsString(NETWORK_INFOS);
             String importedCaseUuidAsString = mapper.writeValueAsString(IMPORTED_CASE_UUID);
             String topLevelDocumentAsString = mapper.writeValueAsString(topLevelDocument);
+            String substationsDocumentAsString = mapper.writeValueAsString(substationsDocument);
             String importedCaseWithErrorsUuidAsString = mapper.writeValueAsString(IMPORTED_CASE_WITH_ERRORS_UUID);
 
             final Dispatcher dispatcher = new Dispatcher() {
@@ -187,6 +230,9 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
                         case "/v1/networks/38400000-8cf0-11bd-b23e-10b96e4ef00d/voltage-levels":
                             return new MockResponse().setResponseCode(200).setBody(topLevelDocumentAsString)
                                     .addHeader("Content-Type", "application/json; charset=utf-8");
+                        case "/v1/networks/38400000-8cf0-11bd-b23e-10b96e4ef00d/substations":
+                            return new MockResponse().setResponseCode(200).setBody(substationsDocumentAsString)
+                                    .addHeader("Content-Type", "application/json; charset=utf-8");
                         case "/v1/studies/{studyName}/cases/{caseUuid}":
                             return new MockResponse().setResponseCode(200).setBody("CGMES")
                                     .addHeader("Content-Type", "application/json; charset=utf-8");
@@ -273,10 +319,17 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
                         case "/v1/loads/38400000-8cf0-11bd-b23e-10b96e4ef00d":
                         case "/v1/shunt-compensators/38400000-8cf0-11bd-b23e-10b96e4ef00d":
                         case "/v1/static-var-compensators/38400000-8cf0-11bd-b23e-10b96e4ef00d":
-                        case "/v1/all/38400000-8cf0-11bd-b23e-10b96e4ef00d":
                             return new MockResponse().setBody(" ").setResponseCode(200)
                                     .addHeader("Content-Type", "application/json; charset=utf-8");
 
+                        case "/v1/all/38400000-8cf0-11bd-b23e-10b96e4ef00d":
+                        case "/v1/all/38400000-8cf0-11bd-b23e-10b96e4ef00d?substationId=s1&substationId=s2&substationId=s3":
+                            if (networkMapUnavailable) {
+                                return new MockResponse().setResponseCode(503);
+                            }
+                            return new MockResponse().setBody("{\"lines\":[]}").setResponseCode(200)
+                                    .addHeader("Content-Type", "application/json; charset=utf-8");
+
                         case "/v1/svg/" + NETWORK_UUID_STRING + "/voltageLevelId?useName=false&centerLabel=false&diagonalLabel=false&topologicalColoring=false":
                             return new MockResponse().setResponseCode(200).setBody("byte")
                                     .addHeader("Content-Type", "application/json; charset=utf-8");
@@ -342,6 +395,12 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         }
     }
 
+    private long successfulQueries(String repository, String method) {
+        Timer queries = meterRegistry.find("study.repository.queries")
+                .tags("repository", repository, "method", method, "outcome", "success").timer();
+        return queries != null ? queries.count() : 0;
+    }
+
     @Test
     public void test() throws Exception {
 
@@ -414,6 +473,49 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
                         .description("description").studyPrivate(false).creationDate(ZonedDateTime.now(ZoneId.of("UTC"))).loadFlowStatus(LoadFlowStatus.NOT_DONE)
                         .build()).matchesSafely(studies.get(0)));
 
+        // paginated listing
+        StudyPage page = webTestClient.get()
+                .uri("/v1/studies?limit={limit}", 1)
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(StudyPage.class)
+                .returnResult().getResponseBody();
+        assertEquals(1, page.getStudies().size());
+        assertEquals(STUDY_NAME, page.getStudies().get(0).getStudyName());
+        assertNotNull(page.getNextCursor());
+
+        page = webTestClient.get()
+                .uri("/v1/studies?limit={limit}&cursor={cursor}", 1, page.getNextCursor())
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(StudyPage.class)
+                .returnResult().getResponseBody();
+        assertEquals(0, page.getStudies().size());
+        assertNull(page.getNextCursor());
+
+        webTestClient.get()
+                .uri("/v1/studies?limit={limit}&cursor={cursor}", 1, "notACursor")
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // batched lookup, unknown studies are left out
+        webTestClient.post()
+                .uri("/v1/studies/batch")
+                .header("userId", "userId")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(List.of(new StudyKeyInfos("userId", STUDY_NAME), new StudyKeyInfos("userId", "unknownStudy"))))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(StudyInfos.class)
+                .value(studies -> {
+                    assertEquals(1, studies.size());
+                    assertEquals(STUDY_NAME, studies.get(0).getStudyName());
+                });
+
         //insert the same study => 409 conflict
         webTestClient.post()
                 .uri("/v1/studies/{studyName}/cases/{caseUuid}?description={description}&isPrivate={isPrivate}", STUDY_NAME, CASE_UUID, DESCRIPTION, "false")
@@ -461,6 +563,86 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         // drop the broker message for study creation request (deletion)
         output.receive(1000);
 
+        //upload a case in chunks, the second one first
+        CaseUploadInfos upload = webTestClient.post()
+                .uri("/v1/case-uploads?fileName={fileName}", TEST_FILE)
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CaseUploadInfos.class)
+                .returnResult().getResponseBody();
+        assertNotNull(upload);
+        assertEquals(List.of(), upload.getReceivedChunks());
+
+        webTestClient.put()
+                .uri("/v1/case-uploads/{uploadId}/chunks/{chunkNumber}", upload.getUploadId(), 1)
+                .header("userId", "userId")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .bodyValue("second chunk".getBytes())
+                .exchange()
+                .expectStatus().isOk();
+
+        //the first chunk is missing -> 400
+        webTestClient.post()
+                .uri("/v1/studies/{studyName}/case-uploads/{uploadId}?description={description}&isPrivate={isPrivate}", "s3", upload.getUploadId(), "desc", "true")
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$")
+                .isEqualTo(UPLOAD_INCOMPLETE.name());
+
+        webTestClient.put()
+                .uri("/v1/case-uploads/{uploadId}/chunks/{chunkNumber}", upload.getUploadId(), 0)
+                .header("userId", "userId")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .bodyValue("first chunk".getBytes())
+                .exchange()
+                .expectStatus().isOk();
+
+        //beyond the maximum number of chunks -> 413
+        webTestClient.put()
+                .uri("/v1/case-uploads/{uploadId}/chunks/{chunkNumber}", upload.getUploadId(), 10000)
+                .header("userId", "userId")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .bodyValue("extra chunk".getBytes())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE)
+                .expectBody()
+                .jsonPath("$")
+                .isEqualTo(UPLOAD_TOO_LARGE.name());
+
+        webTestClient.get()
+                .uri("/v1/case-uploads/{uploadId}", upload.getUploadId())
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.fileName").isEqualTo(TEST_FILE)
+                .jsonPath("$.receivedChunks").isEqualTo(List.of(0, 1));
+
+        //the upload of another user is not accessible
+        webTestClient.get()
+                .uri("/v1/case-uploads/{uploadId}", upload.getUploadId())
+                .header("userId", "userId2")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        webTestClient.delete()
+                .uri("/v1/case-uploads/{uploadId}", upload.getUploadId())
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/v1/case-uploads/{uploadId}", upload.getUploadId())
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$")
+                .isEqualTo(UPLOAD_NOT_FOUND.name());
+
         //Import the same case -> 409 conflict
         try (InputStream is = new FileInputStream(ResourceUtils.getFile("classpath:testCase.xiidm"))) {
             MockMultipartFile mockFile = new MockMultipartFile("caseFile", TEST_FILE, "text/xml", is);
@@ -606,12 +788,34 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
                         "{\"id\":\"NNL2AA1\",\"name\":\"NNL2AA1\",\"substationId\":\"NNL2AA\"}," +
                         "{\"id\":\"NNL3AA1\",\"name\":\"NNL3AA1\",\"substationId\":\"NNL3AA\"}]");
 
-        //get the lines-graphics of a network
+        //get substations
         webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network/substations", "userId", STUDY_NAME)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(10)
+                .jsonPath("$[0].id").isEqualTo("BBE1AA");
+
+        //get the lines-graphics of a network
+        String linesGraphicsETag = webTestClient.get()
                 .uri("/v1/{userId}/studies/{studyName}/geo-data/lines/", "userId", STUDY_NAME)
                 .exchange()
                 .expectStatus().isOk()
-                .expectHeader().contentType(MediaType.APPLICATION_JSON);
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+        assertNotNull(linesGraphicsETag);
+
+        //the lines-graphics are cached and not sent again if the client copy is still valid
+        int requestCount = server.getRequestCount();
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/geo-data/lines/", "userId", STUDY_NAME)
+                .header(HttpHeaders.IF_NONE_MATCH, linesGraphicsETag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        assertEquals(requestCount, server.getRequestCount());
 
         //get the substation-graphics of a network
         webTestClient.get()
@@ -718,6 +922,47 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
                 .expectStatus().isOk()
                 .expectHeader().contentType(MediaType.APPLICATION_JSON);
 
+        //the map data are cached until the network is modified
+        requestCount = server.getRequestCount();
+        String linesMapDataETag = webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/lines/", "userId", STUDY_NAME)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                // passed through still encoded if the client accepts the encoding
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+        assertEquals(requestCount, server.getRequestCount());
+        assertNotNull(linesMapDataETag);
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/lines/", "userId", STUDY_NAME)
+                .header(HttpHeaders.IF_NONE_MATCH, linesMapDataETag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        //whatever the encodings the client accepts, other than gzip
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/lines/", "userId", STUDY_NAME)
+                .header(HttpHeaders.ACCEPT_ENCODING, "br, deflate")
+                .exchange()
+                .expectStatus().isOk();
+        assertEquals(requestCount, server.getRequestCount());
+        //but not the map data of the whole network for all the equipments, streamed through
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/all/", "userId", STUDY_NAME)
+                .exchange()
+                .expectStatus().isOk();
+        assertEquals(requestCount + 1, server.getRequestCount());
+        // only the requests joining a pending read are counted as coalesced, not the cached ones
+        assertEquals(0, meterRegistry.get("study.backend.requests.coalesced").tag("service", "network-map").counter().count(), 0);
+        // the network-map server is reached through its own measured connection pool
+        assertNotNull(meterRegistry.find("reactor.netty.connection.provider.total.connections").tag("name", "network-map").gauge());
+        // behind its circuit breaker, closed as long as the server answers
+        assertEquals(0, meterRegistry.get("study.backend.circuit.state").tag("service", "network-map").gauge().value(), 0);
+        // and measured by URI template, whatever the network
+        assertNotNull(meterRegistry.find("http.client.requests").tag("uri", "/v1/lines/{networkUuid}").timer());
+
         //delete existing study s2
         webTestClient.delete()
                 .uri("/v1/userId/studies/{studyName}/", "s2")
@@ -735,20 +980,35 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         assertEquals("s2", headersSwitch.get(StudyService.HEADER_STUDY_NAME));
         assertEquals(StudyService.UPDATE_TYPE_STUDIES, headersSwitch.get(StudyService.HEADER_UPDATE_TYPE));
 
+        long versionBeforeSwitch = webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}", "userId", STUDY_NAME)
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(StudyInfos.class)
+                .returnResult().getResponseBody().getVersion();
+
         //update switch
+        long nameLookupsBeforeSwitch = successfulQueries("studyByNameRepository", "findByUserIdAndStudyName");
+        long studyReadsBeforeSwitch = successfulQueries("publicAndPrivateStudyRepository", "findById");
         webTestClient.put()
                 .uri("/v1/{userId}/studies/{studyName}/network-modification/switches/{switchId}?open=true", "userId", STUDY_NAME, "switchId")
                 .exchange()
                 .expectStatus().isOk();
 
+        // the study is read at most once by the whole change, every write goes to the study read
+        assertTrue(successfulQueries("studyByNameRepository", "findByUserIdAndStudyName") - nameLookupsBeforeSwitch <= 1);
+        assertTrue(successfulQueries("publicAndPrivateStudyRepository", "findById") - studyReadsBeforeSwitch <= 1);
+
         // assert that the broker message has been sent
-        Set<String> substationsSet = ImmutableSet.of("s1", "s2", "s3");
+        List<String> substationsList = List.of("s1", "s2", "s3");
         Message<byte[]> messageStudyUpdate = output.receive(1000);
         assertEquals("", new String(messageStudyUpdate.getPayload()));
         MessageHeaders headersStudyUpdate = messageStudyUpdate.getHeaders();
         assertEquals(STUDY_NAME, headersStudyUpdate.get(StudyService.HEADER_STUDY_NAME));
         assertEquals("study", headersStudyUpdate.get(StudyService.HEADER_UPDATE_TYPE));
-        assertEquals(substationsSet, headersStudyUpdate.get(StudyService.HEADER_UPDATE_TYPE_SUBSTATIONS_IDS));
+        assertEquals(substationsList, headersStudyUpdate.get(StudyService.HEADER_UPDATE_TYPE_SUBSTATIONS_IDS));
+        assertEquals(NETWORK_UUID_STRING, headersStudyUpdate.get(StudyService.HEADER_NETWORK_UUID));
 
         // assert that the broker message has been sent
         Message<byte[]> messageLFStatus = output.receive(1000);
@@ -771,6 +1031,71 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         assertEquals(STUDY_NAME, headersSwitch.get(StudyService.HEADER_STUDY_NAME));
         assertEquals(StudyService.UPDATE_TYPE_SWITCH, headersSwitch.get(StudyService.HEADER_UPDATE_TYPE));
 
+        //the changes since the version read before the switch are the equipments of the substations it has impacted
+        String delta = webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/delta?version={version}", "userId", STUDY_NAME, versionBeforeSwitch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+        JsonNode deltaNode = mapper.readTree(delta);
+        assertEquals("[\"s1\",\"s2\",\"s3\"]", deltaNode.get("substationsIds").toString());
+        assertEquals("{\"lines\":[]}", deltaNode.get("equipments").toString());
+        assertTrue(deltaNode.get("version").asLong() > versionBeforeSwitch);
+
+        //while the network-map server is unavailable, the stale map data may predate the changes: the delta fails
+        networkMapCache.invalidateSubstations(NETWORK_UUID, List.of("s1"));
+        networkMapUnavailable = true;
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/delta?version={version}", "userId", STUDY_NAME, versionBeforeSwitch)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        networkMapUnavailable = false;
+
+        //nothing has changed since the version of the delta
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/delta?version={version}", "userId", STUDY_NAME, deltaNode.get("version").asLong())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.substationsIds").isEmpty()
+                .jsonPath("$.equipments").doesNotExist();
+
+        //the modifications recorded since a version older than their retention may have expired: the whole network has changed
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/delta?version={version}", "userId", STUDY_NAME, 0)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.wholeNetwork").isEqualTo(true)
+                .jsonPath("$.substationsIds").doesNotExist()
+                .jsonPath("$.equipments.lines").isEmpty();
+
+        //the switch has invalidated the map data of the whole network
+        requestCount = server.getRequestCount();
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network-map/lines/", "userId", STUDY_NAME)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON);
+        assertEquals(requestCount + 1, server.getRequestCount());
+
+        //the diagrams of the other substations are still cached, not the ones of voltage levels of unknown substations
+        requestCount = server.getRequestCount();
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network/substations/{substationId}/svg?useName=false", "userId", STUDY_NAME, "substationId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("substation-byte");
+        assertEquals(requestCount, server.getRequestCount());
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network/voltage-levels/{voltageLevelId}/svg?useName=false", "userId", STUDY_NAME, "voltageLevelId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("byte");
+        assertEquals(requestCount + 1, server.getRequestCount());
+
         //update equipment
         webTestClient.put()
                 .uri("/v1/{userId}/studies/{studyName}/network-modification/groovy", "userId", STUDY_NAME)
@@ -779,13 +1104,13 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
                 .expectStatus().isOk();
 
         // assert that the broker message has been sent
-        substationsSet = ImmutableSet.of("s4", "s5", "s6", "s7");
+        substationsList = List.of("s4", "s5", "s6", "s7");
         messageStudyUpdate = output.receive(1000);
         assertEquals("", new String(messageStudyUpdate.getPayload()));
         headersStudyUpdate = messageStudyUpdate.getHeaders();
         assertEquals(STUDY_NAME, headersStudyUpdate.get(StudyService.HEADER_STUDY_NAME));
         assertEquals("study", headersStudyUpdate.get(StudyService.HEADER_UPDATE_TYPE));
-        assertEquals(substationsSet, headersStudyUpdate.get(StudyService.HEADER_UPDATE_TYPE_SUBSTATIONS_IDS));
+        assertEquals(substationsList, headersStudyUpdate.get(StudyService.HEADER_UPDATE_TYPE_SUBSTATIONS_IDS));
 
         // assert that the broker message has been sent
         messageLFStatus = output.receive(1000);
@@ -794,6 +1119,14 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         assertEquals(STUDY_NAME, headersLFStatus.get(HEADER_STUDY_NAME));
         assertEquals("loadflow_status", headersLFStatus.get(HEADER_UPDATE_TYPE));
 
+        // the script may have created or removed equipments, the voltage levels are read again
+        requestCount = server.getRequestCount();
+        webTestClient.get()
+                .uri("/v1/{userId}/studies/{studyName}/network/voltage-levels", "userId", STUDY_NAME)
+                .exchange()
+                .expectStatus().isOk();
+        assertEquals(requestCount + 1, server.getRequestCount());
+
         webTestClient.get()
                 .uri("/v1/studies")
                 .header("userId", "userId")
@@ -875,6 +1208,42 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         assertEquals("newName", messageLf.getHeaders().get(HEADER_STUDY_NAME));
         assertEquals(StudyService.UPDATE_TYPE_LOADFLOW, messageLf.getHeaders().get(HEADER_UPDATE_TYPE));
 
+        // the loadflow result is fetched on demand
+        webTestClient.get()
+                .uri("/v1/userId/studies/{studyName}/loadflow/result", newStudyName)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.ok").isEqualTo(true)
+                .jsonPath("$.componentResults[0].status").isEqualTo("CONVERGED");
+
+        // and with the study attributes
+        webTestClient.get()
+                .uri("/v1/userId/studies/{studyName}", newStudyName)
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.loadFlowStatus").isEqualTo("CONVERGED")
+                .jsonPath("$.loadFlowResult.componentResults[0].status").isEqualTo("CONVERGED");
+
+        // and never listed
+        webTestClient.get()
+                .uri("/v1/studies/summaries")
+                .header("userId", "userId")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$[?(@.studyName == 'newName')].loadFlowStatus").isEqualTo("CONVERGED")
+                .jsonPath("$[0].loadFlowResult").doesNotExist();
+
+        // the queries and the lightweight transaction of the run are measured
+        assertNotNull(meterRegistry.find("study.repository.queries")
+                .tags("repository", "publicAndPrivateStudyRepository", "method", "lockLoadFlowRun", "outcome", "success").timer());
+        assertNotNull(meterRegistry.find("study.repository.lwt")
+                .tags("method", "lockLoadFlowRun", "applied", "true").counter());
+
         //try to run a another loadflow
         webTestClient.put()
                 .uri("/v1/userId/studies/" + "newName" + "/loadflow/run")
@@ -896,7 +1265,10 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         webTestClient.get()
                 .uri("/v1/userId/studies/{studyName}/export-network/{format}", newStudyName, "XIIDM")
                 .exchange()
-                .expectStatus().isOk();
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .expectBody(String.class)
+                .isEqualTo("byteData");
 
         // security analysis not found
         webTestClient.get()
@@ -1047,11 +1419,20 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
                 .expectStatus().isOk();
 
         // getting setted values
-        webTestClient.get()
+        String lfParametersETag = webTestClient.get()
                 .uri("/v1/userId/studies/{studyName}/loadflow/parameters", newStudyName)
                 .exchange()
                 .expectStatus().isOk()
-                .expectBody(String.class).isEqualTo(LOAD_PARAMETERS_JSON2);
+                .expectBody(String.class).isEqualTo(LOAD_PARAMETERS_JSON2)
+                .returnResult().getResponseHeaders().getETag();
+        assertNotNull(lfParametersETag);
+
+        // the parameters are not sent again while the study doesn't change
+        webTestClient.get()
+                .uri("/v1/userId/studies/{studyName}/loadflow/parameters", newStudyName)
+                .header(HttpHeaders.IF_NONE_MATCH, lfParametersETag)
+                .exchange()
+                .expectStatus().isNotModified();
 
         // run loadflow with new parameters
         webTestClient.put()
@@ -1068,6 +1449,14 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         output.receive(1000);
         output.receive(1000);
         output.receive(1000);
+
+        // the load flow run has changed the study
+        webTestClient.get()
+                .uri("/v1/userId/studies/{studyName}/loadflow/parameters", newStudyName)
+                .header(HttpHeaders.IF_NONE_MATCH, lfParametersETag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo(LOAD_PARAMETERS_JSON2);
     }
 
     @Test
@@ -1154,6 +1543,68 @@ public class StudyTest extends AbstractEmbeddedCassandraSetup {
         }
     }
 
+    @Test
+    public void testInsertStudyWithTakenName() {
+        LoadFlowParametersEntity loadFlowParameters = StudyService.toEntity(LoadFlowParameters.load());
+        StudyEntity study = studyRepository.insertStudy("takenName", "takenUserId", true, NETWORK_UUID, "networkId", DESCRIPTION, "XIIDM",
+                                                        CASE_UUID, false, LoadFlowStatus.NOT_DONE, loadFlowParameters, null).block();
+        assertNotNull(study);
+
+        // the second study loses the name and is removed, the name still leads to the first one
+        assertNull(studyRepository.insertStudy("takenName", "takenUserId", true, NETWORK_UUID, "networkId", DESCRIPTION, "XIIDM",
+                                               CASE_UUID, false, LoadFlowStatus.NOT_DONE, loadFlowParameters, null).block());
+        assertEquals(study.getUuid(), Objects.requireNonNull(studyRepository.findStudy("takenUserId", "takenName").block()).getUuid());
+        List<StudyEntity> studies = studyRepository.getPrivateStudies("takenUserId").collectList().block();
+        assertNotNull(studies);
+        assertEquals(1, studies.size());
+        assertEquals(study.getUuid(), studies.get(0).getUuid());
+    }
+
+    @Test
+    public void testLegacyStudyMigration() {
+        ReactiveCqlOperations cqlOperations = cassandraOperations.getReactiveCqlOperations();
+        cqlOperations.execute("CREATE TABLE IF NOT EXISTS study.study (studyName text, creationDate timestamp, networkUuid uuid, networkId text, "
+                + "description text, caseFormat text, caseUuid uuid, casePrivate boolean, userId text, isPrivate boolean, loadFlowStatus text, "
+                + "loadFlowResult frozen<study.loadFlowResult>, securityAnalysisResultUuid uuid, loadFlowParameters study.loadFlowParameters, "
+                + "PRIMARY KEY (userId, studyName))").block();
+        cqlOperations.execute("INSERT INTO study.study (userId, studyName, creationDate, networkUuid, networkId, description, caseFormat, caseUuid, "
+                + "casePrivate, isPrivate, loadFlowStatus, loadFlowResult, loadFlowParameters) VALUES ('legacyUserId', 'legacyStudy', "
+                + "'2020-06-01 10:00:00+0000', " + NETWORK_UUID_STRING + ", 'networkId', 'description', 'XIIDM', " + CASE_UUID_STRING + ", "
+                + "false, false, 'CONVERGED', {ok: true, metrics: {'network_0_iterations': '7'}, logs: 'legacy logs', "
+                + "componentResults: [{componentNum: 0, status: 'CONVERGED', iterationCount: 7, slackBusId: 'slackBus', slackBusActivePowerMismatch: 1.5}]}, "
+                + "{voltageInitMode: 'UNIFORM_VALUES', dc: false, balanceType: 'PROPORTIONAL_TO_GENERATION_P_MAX'})").block();
+
+        assertEquals(Long.valueOf(1), studyMigration.copyLegacyStudies().block());
+
+        // the copied study is found by its name, with its attributes
+        StudyEntity study = studyRepository.findStudy("legacyUserId", "legacyStudy").block();
+        assertNotNull(study);
+        assertEquals(NETWORK_UUID, study.getNetworkUuid());
+        assertEquals("networkId", study.getNetworkId());
+        assertEquals("description", study.getDescription());
+        assertEquals("XIIDM", study.getCaseFormat());
+        assertEquals(CASE_UUID, study.getCaseUuid());
+        assertEquals(LoadFlowStatus.CONVERGED, study.getLoadFlowStatus());
+        assertEquals(LoadFlowParameters.VoltageInitMode.UNIFORM_VALUES, study.getLoadFlowParameters().getVoltageInitMode());
+
+        // listed by its creation date
+        List<StudyEntity> publicStudies = studyRepository.getPublicStudies().collectList().block();
+        assertNotNull(publicStudies);
+        assertTrue(publicStudies.stream().anyMatch(publicStudy -> publicStudy.getUuid().equals(study.getUuid())));
+
+        // with its load flow result
+        LoadFlowResultEntity loadFlowResult = studyRepository.getLoadFlowResult(study.getUuid()).block();
+        assertNotNull(loadFlowResult);
+        assertTrue(loadFlowResult.isOk());
+        assertEquals("legacy logs", loadFlowResult.getLogs());
+        assertEquals("7", loadFlowResult.getMetrics().get("network_0_iterations"));
+        assertEquals(LoadFlowResult.ComponentResult.Status.CONVERGED, loadFlowResult.getComponentResults().get(0).getStatus());
+
+        // and copied only once
+        assertEquals(Long.valueOf(0), studyMigration.copyLegacyStudies().block());
+        assertEquals(study.getUuid(), Objects.requireNonNull(studyRepository.findStudy("legacyUserId", "legacyStudy").block()).getUuid());
+    }
+
     @After
     public void tearDown() {
         // Shut down the server. Instances cannot be reused.